@@ -0,0 +1,62 @@
+package com.craftinginterpreters.lox.common.scanner;
+
+// Hands out one String per distinct run of characters, looked up straight from the source range,
+// so a name that appears a thousand times is copied out of the source once.
+public final class Interner {
+
+    private String[] table = new String[256];
+    private int[] hashes = new int[256];
+    private int size = 0;
+
+    public String intern(final CharSequence source, final int start, final int end) {
+        int hash = 0;
+        for (int i = start; i < end; i++) {
+            hash = 31 * hash + source.charAt(i);
+        }
+
+        final int mask = table.length - 1;
+        int index = mix(hash) & mask;
+        while (table[index] != null) {
+            if (hashes[index] == hash && matches(table[index], source, start, end)) return table[index];
+            index = (index + 1) & mask;
+        }
+
+        final String text = source.subSequence(start, end).toString();
+        table[index] = text;
+        hashes[index] = hash;
+        if (++size * 2 > table.length) grow();
+        return text;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    private static boolean matches(final String text, final CharSequence source, final int start, final int end) {
+        if (text.length() != end - start) return false;
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) != source.charAt(start + i)) return false;
+        }
+        return true;
+    }
+
+    private static int mix(final int hash) {
+        return hash ^ (hash >>> 16);
+    }
+
+    private void grow() {
+        final String[] oldTable = table;
+        final int[] oldHashes = hashes;
+        table = new String[oldTable.length * 2];
+        hashes = new int[oldTable.length * 2];
+
+        final int mask = table.length - 1;
+        for (int i = 0; i < oldTable.length; i++) {
+            if (oldTable[i] == null) continue;
+            int index = mix(oldHashes[i]) & mask;
+            while (table[index] != null) index = (index + 1) & mask;
+            table[index] = oldTable[i];
+            hashes[index] = oldHashes[i];
+        }
+    }
+}
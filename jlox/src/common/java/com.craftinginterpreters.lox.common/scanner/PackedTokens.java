@@ -0,0 +1,152 @@
+package com.craftinginterpreters.lox.common.scanner;
+
+import com.craftinginterpreters.lox.common.token.Token;
+import com.craftinginterpreters.lox.common.token.TokenCursor;
+import com.craftinginterpreters.lox.common.token.TokenType;
+
+import java.util.Arrays;
+
+import static com.craftinginterpreters.lox.common.token.TokenType.EOF;
+
+// A whole script's tokens as parallel arrays: type, where the text starts, how long it is, and the line.
+// Literal values live in a side table with one entry per number or string, in token order.
+// A Token is only built on request, with its lexeme taken from the source range (interned).
+// The arrays are split into fixed-size chunks, so a growing stream never copies what it already has.
+public final class PackedTokens {
+
+    private static final TokenType[] TYPES = TokenType.values();
+
+    private static final int CHUNK_BITS = 12;
+    private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+    private final CharSequence source;
+    private final Interner interner;
+
+    private int[][] types = new int[16][];
+    private int[][] starts = new int[16][];
+    private int[][] lengths = new int[16][];
+    private int[][] lines = new int[16][];
+    private int size = 0;
+
+    // literals[i] is the value of token literalTokens[i]
+    private Object[] literals = new Object[64];
+    private int[] literalTokens = new int[64];
+    private int literalCount = 0;
+
+    PackedTokens(final CharSequence source, final Interner interner) {
+        this.source = source;
+        this.interner = interner;
+    }
+
+    void add(final TokenType type, final int start, final int length, final int line, final Object literal) {
+        final int chunk = size >>> CHUNK_BITS;
+        final int offset = size & CHUNK_MASK;
+        if (offset == 0) addChunk(chunk);
+        types[chunk][offset] = type.ordinal();
+        starts[chunk][offset] = start;
+        lengths[chunk][offset] = length;
+        lines[chunk][offset] = line;
+        if (literal != null) addLiteral(literal);
+        size++;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public TokenType type(final int index) {
+        return TYPES[types[index >>> CHUNK_BITS][index & CHUNK_MASK]];
+    }
+
+    public int line(final int index) {
+        return lines[index >>> CHUNK_BITS][index & CHUNK_MASK];
+    }
+
+    public Object literal(final int index) {
+        final int entry = Arrays.binarySearch(literalTokens, 0, literalCount, index);
+        return entry >= 0 ? literals[entry] : null;
+    }
+
+    public String lexeme(final int index) {
+        final int start = starts[index >>> CHUNK_BITS][index & CHUNK_MASK];
+        final int length = lengths[index >>> CHUNK_BITS][index & CHUNK_MASK];
+        return Scanner.lexeme(type(index), source, start, start + length, interner);
+    }
+
+    public Token token(final int index) {
+        return new Token(type(index), lexeme(index), literal(index), line(index));
+    }
+
+    public TokenCursor cursor() {
+        return new Cursor();
+    }
+
+    private void addLiteral(final Object literal) {
+        if (literalCount == literals.length) {
+            literals = Arrays.copyOf(literals, literalCount * 2);
+            literalTokens = Arrays.copyOf(literalTokens, literalCount * 2);
+        }
+        literals[literalCount] = literal;
+        literalTokens[literalCount] = size;
+        literalCount++;
+    }
+
+    private void addChunk(final int chunk) {
+        if (chunk == types.length) {
+            types = Arrays.copyOf(types, chunk * 2);
+            starts = Arrays.copyOf(starts, chunk * 2);
+            lengths = Arrays.copyOf(lengths, chunk * 2);
+            lines = Arrays.copyOf(lines, chunk * 2);
+        }
+        types[chunk] = new int[CHUNK_SIZE];
+        starts[chunk] = new int[CHUNK_SIZE];
+        lengths[chunk] = new int[CHUNK_SIZE];
+        lines[chunk] = new int[CHUNK_SIZE];
+    }
+
+    private final class Cursor implements TokenCursor {
+
+        private int current = 0;
+        // First side table entry at or after `current`, kept in step so literals need no search
+        private int literal = 0;
+
+        @Override
+        public TokenType type() {
+            return PackedTokens.this.type(current);
+        }
+
+        @Override
+        public TokenType previousType() {
+            return PackedTokens.this.type(current - 1);
+        }
+
+        @Override
+        public int line() {
+            return PackedTokens.this.line(current);
+        }
+
+        @Override
+        public Object previousLiteral() {
+            if (literal > 0 && literalTokens[literal - 1] == current - 1) return literals[literal - 1];
+            return null;
+        }
+
+        @Override
+        public void advance() {
+            if (type() == EOF) return;
+            if (literal < literalCount && literalTokens[literal] == current) literal++;
+            current++;
+        }
+
+        @Override
+        public Token current() {
+            return token(current);
+        }
+
+        @Override
+        public Token previous() {
+            return token(current - 1);
+        }
+    }
+}
@@ -2,20 +2,26 @@ package com.craftinginterpreters.lox.common.scanner;
 
 import com.craftinginterpreters.lox.common.ProblemReporter;
 import com.craftinginterpreters.lox.common.token.Token;
+import com.craftinginterpreters.lox.common.token.TokenSource;
 import com.craftinginterpreters.lox.common.token.TokenType;
 
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.EnumMap;
 import java.util.List;
 import java.util.Map;
 
 import static com.craftinginterpreters.lox.common.token.TokenType.*;
 
-public class Scanner {
+public class Scanner implements TokenSource {
 
-    private final String source;
-    private final List<Token> tokens = new ArrayList<>();
+    private final CharSequence source;
     private final ProblemReporter reporter;
+    // Identifiers, numbers and strings share one String per distinct text
+    private final Interner interner = new Interner();
+
+    // Type and literal of the token found by the last scanToken() call. No type if it only skipped input.
+    private TokenType scanned;
+    private Object scannedLiteral;
 
     private int start = 0;
     private int current = 0;
@@ -23,53 +29,116 @@ public class Scanner {
     // Will probably need startLine and currentLine to handle multiline strings, comments
     private int line = 1;
 
-    private static final Map<String, TokenType> keywords;
-
-    static {
-        keywords = new HashMap<>();
-        keywords.put("and", AND);
-        keywords.put("break", BREAK);
-        keywords.put("catch", CATCH);
-        keywords.put("class", CLASS);
-        keywords.put("continue", CONTINUE);
-        keywords.put("do", DO);
-        keywords.put("else", ELSE);
-        keywords.put("false", FALSE);
-        keywords.put("fun", FUN);
-        keywords.put("for", FOR);
-        keywords.put("if", IF);
-        keywords.put("in", IN);
-        keywords.put("let", LET);
-        keywords.put("new", NEW);
-        keywords.put("nil", NIL);
-        keywords.put("null", NULL);
-        keywords.put("or", OR);
-        keywords.put("print", PRINT);
-        keywords.put("return", RETURN);
-        keywords.put("super", SUPER);
-        keywords.put("this", THIS);
-        keywords.put("true", TRUE);
-        keywords.put("try", TRY);
-        keywords.put("val", VAL);
-        keywords.put("var", VAR);
-        keywords.put("while", WHILE);
-    }
-
-    public Scanner(final String source, final ProblemReporter reporter) {
+    // Set by scanAppended(): the source can still grow, so a string that runs off its end is
+    // left for later (`truncated`) instead of being reported as unterminated
+    private boolean growing = false;
+    private boolean truncated = false;
+
+    // Tokens whose text never varies get their lexeme from here instead of from the source
+    private static final Map<TokenType, String> fixedLexemes = new EnumMap<>(Map.ofEntries(
+            Map.entry(LEFT_PAREN, "("), Map.entry(RIGHT_PAREN, ")"),
+            Map.entry(LEFT_BRACE, "{"), Map.entry(RIGHT_BRACE, "}"),
+            Map.entry(LEFT_BRACKET, "["), Map.entry(RIGHT_BRACKET, "]"),
+            Map.entry(COMMA, ","), Map.entry(DOT, "."), Map.entry(SEMICOLON, ";"),
+            Map.entry(MINUS, "-"), Map.entry(MINUS_MINUS, "--"), Map.entry(MINUS_EQUAL, "-="),
+            Map.entry(PLUS, "+"), Map.entry(PLUS_PLUS, "++"), Map.entry(PLUS_EQUAL, "+="),
+            Map.entry(STAR, "*"), Map.entry(STAR_EQUAL, "*="),
+            Map.entry(SLASH, "/"), Map.entry(SLASH_EQUAL, "/="), Map.entry(MODULUS, "%"),
+            Map.entry(BANG, "!"), Map.entry(BANG_EQUAL, "!="),
+            Map.entry(EQUAL, "="), Map.entry(EQUAL_EQUAL, "=="),
+            Map.entry(LESS, "<"), Map.entry(LESS_EQUAL, "<="),
+            Map.entry(GREATER, ">"), Map.entry(GREATER_EQUAL, ">="),
+            Map.entry(AND, "and"), Map.entry(BREAK, "break"), Map.entry(CATCH, "catch"),
+            Map.entry(CLASS, "class"), Map.entry(CONTINUE, "continue"), Map.entry(DO, "do"),
+            Map.entry(ELSE, "else"), Map.entry(FALSE, "false"), Map.entry(FUN, "fun"),
+            Map.entry(FOR, "for"), Map.entry(IF, "if"), Map.entry(IN, "in"),
+            Map.entry(LET, "let"), Map.entry(NEW, "new"), Map.entry(NIL, "nil"),
+            Map.entry(NULL, "null"), Map.entry(OR, "or"), Map.entry(PRINT, "print"),
+            Map.entry(RETURN, "return"), Map.entry(SUPER, "super"), Map.entry(THIS, "this"),
+            Map.entry(TRUE, "true"), Map.entry(TRY, "try"), Map.entry(VAL, "val"),
+            Map.entry(VAR, "var"), Map.entry(WHILE, "while")
+    ));
+
+    // Accepts a String or any other CharSequence, e.g. a CharBuffer or a mapped file from SourceFiles
+    public Scanner(final CharSequence source, final ProblemReporter reporter) {
         this.source = source;
         this.reporter = reporter;
     }
 
     public List<Token> scanTokens() {
+        final List<Token> tokens = new ArrayList<>();
+        Token token;
+        do {
+            token = next();
+            tokens.add(token);
+        } while (token.type() != EOF);
+        return tokens;
+    }
+
+    // Scans just far enough to produce the next token
+    @Override
+    public Token next() {
         while (!isAtEnd()) {
             start = current;
             scanToken();
+            if (scanned != null) {
+                final Token token = new Token(scanned, lexeme(scanned, start, current), scannedLiteral, line);
+                scanned = null;
+                return token;
+            }
         }
         // Indicate end of source
-        tokens.add(new Token(EOF, "", null, line));
+        return new Token(EOF, "", null, line);
+    }
+
+    // For a source that is appended to as it is scanned, like a REPL entry coming in line by line.
+    // Adds the tokens completed since the last call, without an EOF; next() gives that once the source is complete.
+    // Returns false when the source ends inside a string, which is scanned again after the next append.
+    public boolean scanAppended(final List<Token> tokens) {
+        growing = true;
+        while (!isAtEnd()) {
+            start = current;
+            final int startLine = line;
+            scanToken();
+            if (truncated) {
+                truncated = false;
+                current = start;
+                line = startLine;
+                return false;
+            }
+            if (scanned != null) {
+                tokens.add(new Token(scanned, lexeme(scanned, start, current), scannedLiteral, line));
+                scanned = null;
+            }
+        }
+        return true;
+    }
+
+    // Scans everything into a PackedTokens, without creating a Token per token
+    public PackedTokens scanPacked() {
+        final PackedTokens tokens = new PackedTokens(source, interner);
+        while (!isAtEnd()) {
+            start = current;
+            scanToken();
+            if (scanned != null) {
+                tokens.add(scanned, start, current - start, line, scannedLiteral);
+                scanned = null;
+            }
+        }
+        tokens.add(EOF, current, 0, line, null);
         return tokens;
     }
 
+    static String lexeme(final TokenType type, final CharSequence source, final int start, final int end, final Interner interner) {
+        final String fixed = fixedLexemes.get(type);
+        if (fixed != null) return fixed;
+        return type == EOF ? "" : interner.intern(source, start, end);
+    }
+
+    private String lexeme(final TokenType type, final int start, final int end) {
+        return lexeme(type, source, start, end, interner);
+    }
+
     private void scanToken() {
         char c = getCharAndAdvance();
 
@@ -86,6 +155,12 @@ public class Scanner {
             case '}':
                 addToken(RIGHT_BRACE);
                 break;
+            case '[':
+                addToken(LEFT_BRACKET);
+                break;
+            case ']':
+                addToken(RIGHT_BRACKET);
+                break;
             case ',':
                 addToken(COMMA);
                 break;
@@ -177,8 +252,8 @@ public class Scanner {
     }
 
     private void addToken(final TokenType type, final Object literal) {
-        final String text = source.substring(start, current);
-        tokens.add(new Token(type, text, literal, line));
+        scanned = type;
+        scannedLiteral = literal;
     }
 
     private boolean isAtEnd() {
@@ -211,13 +286,17 @@ public class Scanner {
         }
 
         if (isAtEnd()) {
+            if (growing) {
+                truncated = true;
+                return;
+            }
             reporter.error(line, "Unterminated string.");
             return;
         }
 
         getCharAndAdvance();
 
-        final String value = source.substring(start + 1, current - 1);
+        final String value = interner.intern(source, start + 1, current - 1);
         addToken(STRING, value);
     }
 
@@ -233,16 +312,90 @@ public class Scanner {
             while (isDigit(peek())) getCharAndAdvance();
         }
 
-        addToken(NUMBER, Double.parseDouble(source.substring(start, current)));
+        final String text = interner.intern(source, start, current);
+        addToken(NUMBER, Double.parseDouble(text));
     }
 
     private void identifier() {
         while (isAlphaNumeric(peek())) getCharAndAdvance();
 
-        final String text = source.substring(start, current);
-        final TokenType type = keywords.getOrDefault(text, IDENTIFIER);
+        addToken(keywordType());
+    }
 
-        addToken(type);
+    // Matches keywords on the source range itself: switch on the first letter or two, then compare the rest
+    private TokenType keywordType() {
+        switch (source.charAt(start)) {
+            case 'a': return keyword(1, "nd", AND);
+            case 'b': return keyword(1, "reak", BREAK);
+            case 'c':
+                if (current - start > 1) {
+                    switch (source.charAt(start + 1)) {
+                        case 'a': return keyword(2, "tch", CATCH);
+                        case 'l': return keyword(2, "ass", CLASS);
+                        case 'o': return keyword(2, "ntinue", CONTINUE);
+                    }
+                }
+                break;
+            case 'd': return keyword(1, "o", DO);
+            case 'e': return keyword(1, "lse", ELSE);
+            case 'f':
+                if (current - start > 1) {
+                    switch (source.charAt(start + 1)) {
+                        case 'a': return keyword(2, "lse", FALSE);
+                        case 'o': return keyword(2, "r", FOR);
+                        case 'u': return keyword(2, "n", FUN);
+                    }
+                }
+                break;
+            case 'i':
+                if (current - start > 1) {
+                    switch (source.charAt(start + 1)) {
+                        case 'f': return keyword(2, "", IF);
+                        case 'n': return keyword(2, "", IN);
+                    }
+                }
+                break;
+            case 'l': return keyword(1, "et", LET);
+            case 'n':
+                if (current - start > 1) {
+                    switch (source.charAt(start + 1)) {
+                        case 'e': return keyword(2, "w", NEW);
+                        case 'i': return keyword(2, "l", NIL);
+                        case 'u': return keyword(2, "ll", NULL);
+                    }
+                }
+                break;
+            case 'o': return keyword(1, "r", OR);
+            case 'p': return keyword(1, "rint", PRINT);
+            case 'r': return keyword(1, "eturn", RETURN);
+            case 's': return keyword(1, "uper", SUPER);
+            case 't':
+                if (current - start > 1) {
+                    switch (source.charAt(start + 1)) {
+                        case 'h': return keyword(2, "is", THIS);
+                        case 'r': return current - start == 4 ? keyword(2, "ue", TRUE) : keyword(2, "y", TRY);
+                    }
+                }
+                break;
+            case 'v':
+                if (current - start == 3 && source.charAt(start + 1) == 'a') {
+                    switch (source.charAt(start + 2)) {
+                        case 'l': return VAL;
+                        case 'r': return VAR;
+                    }
+                }
+                break;
+            case 'w': return keyword(1, "hile", WHILE);
+        }
+        return IDENTIFIER;
+    }
+
+    private TokenType keyword(final int offset, final String rest, final TokenType type) {
+        if (current - start != offset + rest.length()) return IDENTIFIER;
+        for (int i = 0; i < rest.length(); i++) {
+            if (source.charAt(start + offset + i) != rest.charAt(i)) return IDENTIFIER;
+        }
+        return type;
     }
 
     private boolean isAlpha(final char c) {
@@ -0,0 +1,70 @@
+package com.craftinginterpreters.lox.common.scanner;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+// Opens scripts for the Scanner without reading them into a byte[] and then a String.
+// The file is memory-mapped; plain ASCII (nearly every script) is scanned straight out of the
+// mapping, anything else is decoded once into a CharBuffer.
+public final class SourceFiles {
+
+    private SourceFiles() { }
+
+    public static CharSequence map(final Path path, final Charset charset) throws IOException {
+        return chars(bytes(path), charset);
+    }
+
+    public static ByteBuffer bytes(final Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+    }
+
+    public static CharSequence chars(final ByteBuffer bytes, final Charset charset) {
+        if (isAscii(bytes) && isAsciiCompatible(charset)) return new AsciiSequence(bytes);
+        return charset.decode(bytes.duplicate());
+    }
+
+    private static boolean isAscii(final ByteBuffer bytes) {
+        for (int i = 0; i < bytes.limit(); i++) {
+            if (bytes.get(i) < 0) return false;
+        }
+        return true;
+    }
+
+    private static boolean isAsciiCompatible(final Charset charset) {
+        return charset.equals(StandardCharsets.UTF_8)
+                || charset.equals(StandardCharsets.US_ASCII)
+                || charset.equals(StandardCharsets.ISO_8859_1);
+    }
+
+    private record AsciiSequence(ByteBuffer bytes) implements CharSequence {
+
+        @Override
+        public int length() {
+            return bytes.limit();
+        }
+
+        @Override
+        public char charAt(final int index) {
+            return (char) bytes.get(index);
+        }
+
+        @Override
+        public CharSequence subSequence(final int start, final int end) {
+            return new AsciiSequence(bytes.slice(start, end - start));
+        }
+
+        @Override
+        public String toString() {
+            final byte[] text = new byte[bytes.limit()];
+            bytes.get(0, text);
+            return new String(text, StandardCharsets.ISO_8859_1);
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package com.craftinginterpreters.lox.common.token;
+
+// What the Parser runs on: the current and the previous token, and a way to move forward.
+// Types can be checked without a Token ever being created; current() and previous() create one
+// only when the parser keeps it (names, operators, anything an error message may point at).
+public interface TokenCursor {
+
+    TokenType type();
+
+    TokenType previousType();
+
+    // Line of the current token
+    int line();
+
+    Object previousLiteral();
+
+    // Moves to the next token. Stays on EOF once it gets there.
+    void advance();
+
+    Token current();
+
+    Token previous();
+
+    // Cursor over tokens pulled one at a time, e.g. straight from the Scanner
+    static TokenCursor over(final TokenSource tokens) {
+        return new TokenCursor() {
+            private Token previous;
+            private Token current = tokens.next();
+
+            @Override
+            public TokenType type() {
+                return current.type();
+            }
+
+            @Override
+            public TokenType previousType() {
+                return previous.type();
+            }
+
+            @Override
+            public int line() {
+                return current.line();
+            }
+
+            @Override
+            public Object previousLiteral() {
+                return previous.literal();
+            }
+
+            @Override
+            public void advance() {
+                if (current.type() == TokenType.EOF) return;
+                previous = current;
+                current = tokens.next();
+            }
+
+            @Override
+            public Token current() {
+                return current;
+            }
+
+            @Override
+            public Token previous() {
+                return previous;
+            }
+        };
+    }
+}
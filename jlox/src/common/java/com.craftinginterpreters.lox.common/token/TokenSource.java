@@ -0,0 +1,23 @@
+package com.craftinginterpreters.lox.common.token;
+
+import java.util.List;
+
+// Pull side of the Scanner: the Parser asks for one token at a time instead of a whole list.
+// Once the source is used up every call returns the EOF token.
+public interface TokenSource {
+
+    Token next();
+
+    static TokenSource of(final List<Token> tokens) {
+        return new TokenSource() {
+            private int current = 0;
+
+            @Override
+            public Token next() {
+                final Token token = tokens.get(current);
+                if (current < tokens.size() - 1) current++;
+                return token;
+            }
+        };
+    }
+}
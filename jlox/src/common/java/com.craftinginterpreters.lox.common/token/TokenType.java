@@ -6,7 +6,7 @@ import java.util.Set;
 public enum TokenType {
 
     // Single character tokens
-    LEFT_PAREN, RIGHT_PAREN, LEFT_BRACE, RIGHT_BRACE,
+    LEFT_PAREN, RIGHT_PAREN, LEFT_BRACE, RIGHT_BRACE, LEFT_BRACKET, RIGHT_BRACKET,
     COMMA, DOT, MINUS, MODULUS, PLUS, SEMICOLON, SLASH, STAR,
 
     // One or two character tokens
@@ -31,8 +31,10 @@ public enum TokenType {
 
     public static final Map<TokenType, TokenType> OPEN_TO_CLOSE_TOKEN_TYPE_PAIR = Map.of(
             LEFT_PAREN, RIGHT_PAREN,
-            LEFT_BRACE, RIGHT_BRACE
+            LEFT_BRACE, RIGHT_BRACE,
+            LEFT_BRACKET, RIGHT_BRACKET
     );
 
-    public static final Set<TokenType> CONTINUATION_TOKEN_TYPES = Set.of(LEFT_PAREN, RIGHT_PAREN, LEFT_BRACE, RIGHT_BRACE);
+    public static final Set<TokenType> CONTINUATION_TOKEN_TYPES = Set.of(
+            LEFT_PAREN, RIGHT_PAREN, LEFT_BRACE, RIGHT_BRACE, LEFT_BRACKET, RIGHT_BRACKET);
 }
@@ -0,0 +1,94 @@
+package com.craftinginterpreters.lox.benchmarks;
+
+import com.craftinginterpreters.lox.Program;
+import com.craftinginterpreters.lox.common.ProblemReporter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+// One compiled Program run by `threads` threads at once, on the tree engine. Each operation is a batch
+// of one run per thread, so scripts per second is the score times `threads`.
+// Setup checks that concurrent runs print exactly what a run on its own does.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ConcurrentRunBenchmark {
+
+    @Param({"fib", "method_calls", "instantiation"})
+    public String workload;
+
+    @Param({"1", "4", "16"})
+    public int threads;
+
+    private Program program;
+    private ExecutorService executor;
+    private List<Callable<ProblemReporter>> batch;
+
+    @Setup
+    public void setUp() throws Exception {
+        final ProblemReporter reporter = new ProblemReporter();
+        program = Program.compile(Sources.workload(workload), reporter);
+        Sources.check(reporter);
+        executor = Executors.newFixedThreadPool(threads);
+
+        final ByteArrayOutputStream alone = new ByteArrayOutputStream();
+        Sources.check(program.run(new PrintStream(alone, true, StandardCharsets.UTF_8)));
+
+        final List<ByteArrayOutputStream> outputs = new ArrayList<>();
+        final List<Callable<ProblemReporter>> checks = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            final ByteArrayOutputStream output = new ByteArrayOutputStream();
+            outputs.add(output);
+            checks.add(() -> program.run(new PrintStream(output, true, StandardCharsets.UTF_8)));
+        }
+        for (final Future<ProblemReporter> result : executor.invokeAll(checks)) {
+            Sources.check(result.get());
+        }
+        for (final ByteArrayOutputStream output : outputs) {
+            if (!output.toString(StandardCharsets.UTF_8).equals(alone.toString(StandardCharsets.UTF_8))) {
+                throw new IllegalStateException("Concurrent run printed " + output + " instead of " + alone);
+            }
+        }
+
+        batch = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            batch.add(() -> program.run(Sources.DISCARD));
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Benchmark
+    public List<Future<ProblemReporter>> run() throws InterruptedException, ExecutionException {
+        final List<Future<ProblemReporter>> results = executor.invokeAll(batch);
+        for (final Future<ProblemReporter> result : results) result.get();
+        return results;
+    }
+}
@@ -0,0 +1,21 @@
+package com.craftinginterpreters.lox.benchmarks;
+
+import com.craftinginterpreters.lox.Engine;
+import com.craftinginterpreters.lox.compiler.ClosureCompiler;
+import com.craftinginterpreters.lox.visitors.Interpreter;
+import com.craftinginterpreters.lox.vm.VM;
+
+// Same names as the --engine flag
+final class Engines {
+
+    private Engines() { }
+
+    static Engine create(final String name) {
+        return switch (name) {
+            case "tree" -> new Interpreter();
+            case "closure" -> new ClosureCompiler();
+            case "vm" -> new VM();
+            default -> throw new IllegalArgumentException("Unknown engine " + name);
+        };
+    }
+}
@@ -0,0 +1,78 @@
+package com.craftinginterpreters.lox.benchmarks;
+
+import com.craftinginterpreters.lox.ast.Stmt;
+import com.craftinginterpreters.lox.common.ProblemReporter;
+import com.craftinginterpreters.lox.common.scanner.Scanner;
+import com.craftinginterpreters.lox.common.scanner.SourceFiles;
+import com.craftinginterpreters.lox.parser.Parser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Script file to AST, the way Lox.runFile used to do it and the way it does it now.
+// 1000 units is about 0.8 MB of source, 5000 about 4 MB. Compare the gc.alloc.rate.norm lines.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LoadBenchmark {
+
+    @Param({"1000", "5000"})
+    public int units;
+
+    private Path script;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        script = Files.createTempFile("load-benchmark", ".lox");
+        Files.writeString(script, Sources.generate(units));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(script);
+    }
+
+    // Whole file into a String, then a complete token list, then the parser
+    @Benchmark
+    public List<Stmt> readAll() throws IOException {
+        final ProblemReporter reporter = new ProblemReporter();
+        final String source = new String(Files.readAllBytes(script), Charset.defaultCharset());
+        return new Parser(new Scanner(source, reporter).scanTokens(), reporter).parse();
+    }
+
+    // Mapped file, tokens pulled by the parser as it goes
+    @Benchmark
+    public List<Stmt> streamed() throws IOException {
+        final ProblemReporter reporter = new ProblemReporter();
+        final CharSequence source = SourceFiles.map(script, Charset.defaultCharset());
+        return new Parser(new Scanner(source, reporter), reporter).parse();
+    }
+
+    // Mapped file scanned into parallel arrays, parser on a cursor over them
+    @Benchmark
+    public List<Stmt> packed() throws IOException {
+        final ProblemReporter reporter = new ProblemReporter();
+        final CharSequence source = SourceFiles.map(script, Charset.defaultCharset());
+        return new Parser(new Scanner(source, reporter).scanPacked().cursor(), reporter).parse();
+    }
+}
@@ -0,0 +1,110 @@
+package com.craftinginterpreters.lox.benchmarks;
+
+import com.craftinginterpreters.lox.callables.classes.LoxClass;
+import com.craftinginterpreters.lox.callables.classes.LoxInstance;
+import com.craftinginterpreters.lox.callables.functions.system.maps.LoxMap;
+import com.craftinginterpreters.lox.common.token.Token;
+import com.craftinginterpreters.lox.common.token.TokenType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+// Filling a dictionary with `keys` keys and then reading every one back, as one operation:
+// - `loxMap`: LoxMap, with number keys going in unboxed
+// - `hashMap`: java.util.HashMap, which boxes number keys and allocates a node per entry
+// - `instance`: the workaround before maps, a LoxInstance with one field per key (string keys only).
+//   Past a few dozen fields it leaves shapes for a HashMap of its own, so this is mostly that HashMap.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MapBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class Keys {
+
+        @Param({"1000", "1000000"})
+        public int keys;
+
+        @Param({"string", "number"})
+        public String type;
+
+        private String[] strings;
+
+        @Setup
+        public void setUp() {
+            strings = new String[keys];
+            for (int i = 0; i < keys; i++) {
+                strings[i] = "key" + i;
+            }
+        }
+    }
+
+    @Benchmark
+    public long loxMap(final Keys keys) {
+        final LoxMap map = new LoxMap();
+        long found = 0;
+        if (keys.type.equals("number")) {
+            for (int i = 0; i < keys.keys; i++) map.put(i * 7.0, Boolean.TRUE);
+            for (int i = 0; i < keys.keys; i++) if (map.get(i * 7.0) != null) found++;
+        } else {
+            for (final String key : keys.strings) map.put(null, key, Boolean.TRUE);
+            for (final String key : keys.strings) if (map.get(null, key) != null) found++;
+        }
+        return found;
+    }
+
+    @Benchmark
+    public long hashMap(final Keys keys) {
+        final Map<Object, Object> map = new HashMap<>();
+        long found = 0;
+        if (keys.type.equals("number")) {
+            for (int i = 0; i < keys.keys; i++) map.put(i * 7.0, Boolean.TRUE);
+            for (int i = 0; i < keys.keys; i++) if (map.get(i * 7.0) != null) found++;
+        } else {
+            for (final String key : keys.strings) map.put(key, Boolean.TRUE);
+            for (final String key : keys.strings) if (map.get(key) != null) found++;
+        }
+        return found;
+    }
+
+    @State(Scope.Benchmark)
+    public static class Fields {
+
+        @Param({"1000", "1000000"})
+        public int keys;
+
+        private Token[] names;
+
+        @Setup
+        public void setUp() {
+            names = new Token[keys];
+            for (int i = 0; i < keys; i++) {
+                names[i] = new Token(TokenType.IDENTIFIER, "key" + i, null, 1);
+            }
+        }
+    }
+
+    // A new class each time, so the shapes built by the previous run don't make this one cheaper
+    @Benchmark
+    public long instance(final Fields fields) {
+        final LoxInstance instance = new LoxInstance(new LoxClass("Dictionary", null, Map.of()));
+        long found = 0;
+        for (final Token name : fields.names) instance.set(name, Boolean.TRUE);
+        for (final Token name : fields.names) if (instance.get(name) != null) found++;
+        return found;
+    }
+}
@@ -0,0 +1,68 @@
+package com.craftinginterpreters.lox.benchmarks;
+
+import com.craftinginterpreters.lox.ast.Stmt;
+import com.craftinginterpreters.lox.common.ProblemReporter;
+import com.craftinginterpreters.lox.visitors.Optimizer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.PrintStream;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Execution of the same workload as written and after the Optimizer, on each engine.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class OptimizerBenchmark {
+
+    @Param({"constants", "arithmetic"})
+    public String workload;
+
+    @Param({"false", "true"})
+    public boolean optimize;
+
+    @Param({"tree", "closure", "vm"})
+    public String engine;
+
+    private List<Stmt> statements;
+    private PrintStream out;
+
+    @Setup
+    public void setUp() {
+        statements = Sources.resolve(Sources.parse(Sources.scan(Sources.workload(workload))));
+        if (optimize) statements = Sources.resolve(new Optimizer().optimize(statements));
+
+        final ProblemReporter reporter = new ProblemReporter();
+        Engines.create(engine).interpret(statements, reporter);
+        Sources.check(reporter);
+
+        out = System.out;
+        System.setOut(Sources.DISCARD);
+    }
+
+    @TearDown
+    public void tearDown() {
+        System.setOut(out);
+    }
+
+    @Benchmark
+    public ProblemReporter run() {
+        final ProblemReporter reporter = new ProblemReporter();
+        Engines.create(engine).interpret(statements, reporter);
+        return reporter;
+    }
+}
@@ -0,0 +1,72 @@
+package com.craftinginterpreters.lox.benchmarks;
+
+import com.craftinginterpreters.lox.ast.Stmt;
+import com.craftinginterpreters.lox.common.ProblemReporter;
+import com.craftinginterpreters.lox.common.scanner.Scanner;
+import com.craftinginterpreters.lox.common.token.Token;
+import com.craftinginterpreters.lox.parser.Parser;
+import com.craftinginterpreters.lox.visitors.Interpreter;
+import com.craftinginterpreters.lox.visitors.Resolver;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// One benchmark per front-end phase, each fed the output of the previous phases.
+// The input is a generated program of `units` blocks (about 30 lines each).
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PhaseBenchmark {
+
+    @Param({"100", "1000"})
+    public int units;
+
+    private String source;
+    private List<Token> tokens;
+    private List<Stmt> statements;
+
+    @Setup
+    public void setUp() {
+        source = Sources.generate(units);
+        tokens = Sources.scan(source);
+        statements = Sources.resolve(Sources.parse(tokens));
+    }
+
+    @Benchmark
+    public List<Token> scan() {
+        return new Scanner(source, new ProblemReporter()).scanTokens();
+    }
+
+    @Benchmark
+    public List<Stmt> parse() {
+        return new Parser(tokens, new ProblemReporter()).parse();
+    }
+
+    // Resolution only writes depth/slot into the nodes, so resolving the same tree again gives the same result
+    @Benchmark
+    public List<Stmt> resolve() {
+        new Resolver(new ProblemReporter()).resolve(statements);
+        return statements;
+    }
+
+    @Benchmark
+    public ProblemReporter interpret() {
+        final ProblemReporter reporter = new ProblemReporter();
+        new Interpreter().interpret(statements, reporter);
+        return reporter;
+    }
+}
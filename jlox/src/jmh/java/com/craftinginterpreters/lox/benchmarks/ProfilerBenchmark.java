@@ -0,0 +1,73 @@
+package com.craftinginterpreters.lox.benchmarks;
+
+import com.craftinginterpreters.lox.ast.Stmt;
+import com.craftinginterpreters.lox.common.ProblemReporter;
+import com.craftinginterpreters.lox.profiler.Profiler;
+import com.craftinginterpreters.lox.visitors.Interpreter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.PrintStream;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Call- and statement-heavy workloads on the tree engine, with and without a Profiler attached.
+// Without one, the numbers should match WorkloadBenchmark's.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ProfilerBenchmark {
+
+    @Param({"fib", "method_calls"})
+    public String workload;
+
+    @Param({"false", "true"})
+    public boolean profile;
+
+    private List<Stmt> statements;
+    private PrintStream out;
+
+    @Setup
+    public void setUp() {
+        statements = Sources.resolve(Sources.parse(Sources.scan(Sources.workload(workload))));
+        Sources.check(run());
+
+        out = System.out;
+        System.setOut(Sources.DISCARD);
+    }
+
+    @TearDown
+    public void tearDown() {
+        System.setOut(out);
+    }
+
+    @Benchmark
+    public ProblemReporter run() {
+        final ProblemReporter reporter = new ProblemReporter();
+        final Interpreter interpreter = new Interpreter();
+        if (!profile) {
+            interpreter.interpret(statements, reporter);
+            return reporter;
+        }
+
+        final Profiler profiler = new Profiler();
+        interpreter.profile(profiler);
+        profiler.startScript(workload);
+        interpreter.interpret(statements, reporter);
+        profiler.endScript();
+        return reporter;
+    }
+}
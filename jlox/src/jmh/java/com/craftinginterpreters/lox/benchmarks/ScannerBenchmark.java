@@ -0,0 +1,54 @@
+package com.craftinginterpreters.lox.benchmarks;
+
+import com.craftinginterpreters.lox.common.ProblemReporter;
+import com.craftinginterpreters.lox.common.scanner.Scanner;
+import com.craftinginterpreters.lox.common.token.Token;
+import com.craftinginterpreters.lox.common.token.TokenType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+// Scanner alone, pulling tokens without collecting them.
+// `identifiers` is about 2 MB of mostly names and keywords, `program` is the PhaseBenchmark source at 2000 units.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ScannerBenchmark {
+
+    @Param({"identifiers", "program"})
+    public String source;
+
+    private String text;
+
+    @Setup
+    public void setUp() {
+        text = source.equals("identifiers") ? Sources.identifiers(25_000) : Sources.generate(2000);
+        final ProblemReporter reporter = new ProblemReporter();
+        new Scanner(text, reporter).scanTokens();
+        Sources.check(reporter);
+    }
+
+    @Benchmark
+    public void scan(final Blackhole blackhole) {
+        final Scanner scanner = new Scanner(text, new ProblemReporter());
+        Token token;
+        do {
+            token = scanner.next();
+            blackhole.consume(token);
+        } while (token.type() != TokenType.EOF);
+    }
+}
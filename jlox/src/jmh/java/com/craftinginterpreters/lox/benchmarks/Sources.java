@@ -0,0 +1,117 @@
+package com.craftinginterpreters.lox.benchmarks;
+
+import com.craftinginterpreters.lox.ast.Stmt;
+import com.craftinginterpreters.lox.common.ProblemReporter;
+import com.craftinginterpreters.lox.common.scanner.Scanner;
+import com.craftinginterpreters.lox.common.token.Token;
+import com.craftinginterpreters.lox.parser.Parser;
+import com.craftinginterpreters.lox.visitors.Resolver;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+// Inputs shared by the benchmarks
+final class Sources {
+
+    // Quiet stand-in for System.out, so scripts that print don't flood the JMH output
+    static final PrintStream DISCARD = new PrintStream(OutputStream.nullOutputStream());
+
+    private Sources() { }
+
+    // A large, valid program made of `units` copies of a block with a bit of everything in the grammar.
+    // It doesn't print, so it can be run as is.
+    static String generate(final int units) {
+        final StringBuilder source = new StringBuilder();
+        source.append("// Generated benchmark source\n");
+        for (int i = 0; i < units; i++) {
+            source.append("""
+                    fun add%1$d(a, b) {
+                        var total = 0;
+                        for (var i = 0; i < 3; i = i + 1) {
+                            if (isEven(i) and a > b) {
+                                total = total + a * i;
+                            } else {
+                                total = total - b / (i + 1);
+                            }
+                        }
+                        return total + %1$d.5;
+                    }
+
+                    class Point%1$d {
+                        init(x, y) {
+                            this.x = x;
+                            this.y = y;
+                        }
+
+                        sum() {
+                            return this.x + this.y;
+                        }
+                    }
+
+                    var value%1$d = add%1$d(%1$d, 2) + Point%1$d(1, 2).sum();
+                    var label%1$d = "unit " + "%1$d";
+                    """.formatted(i));
+        }
+        return source.toString();
+    }
+
+    // `lines` statements that are almost all names: a few hundred distinct identifiers, each used
+    // over and over, mixed with keywords and identifiers that start like keywords (classy, format, ...)
+    static String identifiers(final int lines) {
+        final String[] stems = {"value", "total", "classy", "format", "node", "thisOne", "index", "returned", "dog", "varName"};
+        final StringBuilder source = new StringBuilder();
+        for (int i = 0; i < lines; i++) {
+            final String a = stems[i % stems.length] + (i % 37);
+            final String b = stems[(i / 3) % stems.length] + (i % 29);
+            final String c = stems[(i / 7) % stems.length] + (i % 41);
+            source.append("var %s = %s and %s or nil; if (%s) while (false) print this.%s;\n".formatted(a, b, c, a, c));
+        }
+        return source.toString();
+    }
+
+    static String workload(final String name) {
+        final String path = "/workloads/%s.lox".formatted(name);
+        try (final InputStream in = Sources.class.getResourceAsStream(path)) {
+            if (in == null) throw new IllegalStateException("No workload at " + path);
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    static List<Token> scan(final String source) {
+        final ProblemReporter reporter = new ProblemReporter();
+        final List<Token> tokens = new Scanner(source, reporter).scanTokens();
+        check(reporter);
+        return tokens;
+    }
+
+    static List<Stmt> parse(final List<Token> tokens) {
+        final ProblemReporter reporter = new ProblemReporter();
+        final List<Stmt> statements = new Parser(tokens, reporter).parse();
+        check(reporter);
+        return statements;
+    }
+
+    static List<Stmt> resolve(final List<Stmt> statements) {
+        final ProblemReporter reporter = new ProblemReporter();
+        new Resolver(reporter).resolve(statements);
+        check(reporter);
+        return statements;
+    }
+
+    // A benchmark over a broken program measures the error path, which is not what we want
+    static void check(final ProblemReporter reporter) {
+        if (reporter.hasErrors() || reporter.hasRuntimeErrors()) {
+            final List<String> problems = reporter.hasErrors()
+                    ? reporter.errors()
+                    : reporter.runtimeErrors().stream().map(Throwable::getMessage).toList();
+            throw new IllegalStateException("Benchmark source has errors: " + problems);
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package com.craftinginterpreters.lox.benchmarks;
+
+import com.craftinginterpreters.lox.Program;
+import com.craftinginterpreters.lox.common.ProblemReporter;
+import com.craftinginterpreters.lox.visitors.Interpreter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+// spawn() and channels at scale, on the tree engine. Both scripts keep every task alive at once:
+// - fan_in: `tasks` tasks send to one channel of 1000 that is only drained once all have started
+// - join_chain: each task joins the one spawned before it, and the script joins the last
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TaskBenchmark {
+
+    @Param({"fan_in", "join_chain"})
+    public String script;
+
+    @Param({"1000", "100000"})
+    public int tasks;
+
+    private Program program;
+
+    @Setup
+    public void setUp() {
+        final String source = switch (script) {
+            case "fan_in" -> """
+                    var results = channel(1000);
+                    fun start(i) {
+                        fun work() { send(results, i); }
+                        spawn(work);
+                    }
+                    for (var i = 0; i < %1$d; i = i + 1) start(i);
+                    var total = 0;
+                    for (var i = 0; i < %1$d; i = i + 1) total = total + receive(results);
+                    print total;
+                    """.formatted(tasks);
+            case "join_chain" -> """
+                    fun link(previous, i) {
+                        fun work() {
+                            if (previous == nil) return i;
+                            return join(previous) + i;
+                        }
+                        return spawn(work);
+                    }
+                    var last = nil;
+                    for (var i = 0; i < %1$d; i = i + 1) last = link(last, i);
+                    print join(last);
+                    """.formatted(tasks);
+            default -> throw new IllegalArgumentException("Unknown script " + script);
+        };
+
+        final ProblemReporter reporter = new ProblemReporter();
+        program = Program.compile(source, reporter);
+        Sources.check(reporter);
+
+        // Both add up 0 until `tasks`
+        final ByteArrayOutputStream output = new ByteArrayOutputStream();
+        Sources.check(program.run(new PrintStream(output, true, StandardCharsets.UTF_8)));
+        final String expected = Interpreter.stringify((double) tasks * (tasks - 1) / 2);
+        if (!output.toString(StandardCharsets.UTF_8).strip().equals(expected)) {
+            throw new IllegalStateException("Expected %s, got %s".formatted(expected, output));
+        }
+    }
+
+    @Benchmark
+    public ProblemReporter run() {
+        return program.run(Sources.DISCARD);
+    }
+}
@@ -0,0 +1,68 @@
+package com.craftinginterpreters.lox.benchmarks;
+
+import com.craftinginterpreters.lox.ast.Stmt;
+import com.craftinginterpreters.lox.common.ProblemReporter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.PrintStream;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Classic interpreter workloads from src/jmh/resources/workloads, run on each engine.
+// Scanning, parsing and resolving happen once in setup, so this is execution only
+// (plus bytecode compilation for the vm, which is part of its interpret()).
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class WorkloadBenchmark {
+
+    @Param({"fib", "binary_trees", "method_calls", "string_concat", "closures", "instantiation", "compound_assignment",
+            "loop_counter", "increment", "arithmetic", "array_sum", "array_sum_boxed", "linked_list_sum"})
+    public String workload;
+
+    @Param({"tree", "closure", "vm"})
+    public String engine;
+
+    private List<Stmt> statements;
+    private PrintStream out;
+
+    @Setup
+    public void setUp() {
+        statements = Sources.resolve(Sources.parse(Sources.scan(Sources.workload(workload))));
+
+        // Workloads print their result, make sure they still run cleanly before muting them
+        final ProblemReporter reporter = new ProblemReporter();
+        Engines.create(engine).interpret(statements, reporter);
+        Sources.check(reporter);
+
+        out = System.out;
+        System.setOut(Sources.DISCARD);
+    }
+
+    @TearDown
+    public void tearDown() {
+        System.setOut(out);
+    }
+
+    // A fresh engine each time, so globals from the previous run don't leak in
+    @Benchmark
+    public ProblemReporter run() {
+        final ProblemReporter reporter = new ProblemReporter();
+        Engines.create(engine).interpret(statements, reporter);
+        return reporter;
+    }
+}
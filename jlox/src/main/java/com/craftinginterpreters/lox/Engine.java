@@ -0,0 +1,12 @@
+package com.craftinginterpreters.lox;
+
+import com.craftinginterpreters.lox.ast.Stmt;
+import com.craftinginterpreters.lox.common.ProblemReporter;
+
+import java.util.List;
+
+// Runs resolved statements. Globals are kept between calls so the REPL can build on previous lines.
+public interface Engine {
+
+    void interpret(List<Stmt> statements, ProblemReporter reporter);
+}
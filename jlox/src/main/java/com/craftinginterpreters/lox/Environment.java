@@ -1,23 +1,57 @@
 package com.craftinginterpreters.lox;
 
-import com.craftinginterpreters.lox.ast.Expr;
 import com.craftinginterpreters.lox.common.errors.RuntimeError;
 import com.craftinginterpreters.lox.common.token.Token;
 
-import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class Environment {
 
-    private final Environment enclosing;
-    private final Map<String, Object> values = new HashMap<>();
+    private static final Object[] NO_SLOTS = new Object[0];
+    private static final int MIN_SLOTS = 4;
+    // Marks a slot whose value is a number kept unboxed in `numbers`
+    private static final Object UNBOXED = new Object();
+    // Stands for nil among the globals, which can't hold null
+    private static final Object NIL = new Object();
+
+    // Only changes when a FramePool hands the environment out again
+    private Environment enclosing;
+
+    // Globals are late bound, so they are looked up by name. Tasks started with spawn() share them,
+    // so they are kept in a concurrent map.
+    // Locals are resolved by the Resolver to a slot in their scope and live in an array instead.
+    private final Map<String, Object> values;
+    private Object[] slots;
+    private int size = 0;
+    // Only allocated once the interpreter stores a number unboxed
+    private double[] numbers;
 
     public Environment() {
-        enclosing = null;
+        this.enclosing = null;
+        this.values = new ConcurrentHashMap<>();
+        this.slots = NO_SLOTS;
     }
 
     public Environment(final Environment environment) {
         this.enclosing = environment;
+        this.values = null;
+        this.slots = NO_SLOTS;
+    }
+
+    // For callers that already know how many locals the scope declares
+    public Environment(final Environment environment, final int capacity) {
+        this.enclosing = environment;
+        this.values = null;
+        this.slots = capacity == 0 ? NO_SLOTS : new Object[capacity];
+    }
+
+    // Empties a local scope for another run of a block, see FramePool.
+    // Old values are left in place, the block defines its locals again before reading them.
+    Environment reuse(final Environment enclosing) {
+        this.enclosing = enclosing;
+        this.size = 0;
+        return this;
     }
 
     public Environment getEnclosing() {
@@ -34,13 +68,25 @@ public class Environment {
         // Maybe define a new type in grammar where Assignment is without a value??
         // Or, create a Set in addition to the HashMap. Unassigned declarations are stored in the Set
         // until an assignment is made. At which point, remove from set and put in HashMap.
-        values.put(name, value);
+        if (values != null) {
+            values.put(name, value == null ? NIL : value);
+            return;
+        }
+
+        // Declarations run in the same order the Resolver handed out slots, so appending is enough.
+        if (size == slots.length) {
+            final Object[] grown = new Object[Math.max(MIN_SLOTS, size * 2)];
+            System.arraycopy(slots, 0, grown, 0, size);
+            slots = grown;
+        }
+        slots[size++] = value;
     }
 
     // Why is this a Token and not String like in define()?
     public Object get(final Token name) {
-        if (values.containsKey(name.lexeme())) {
-            return values.get(name.lexeme());
+        if (values != null) {
+            final Object value = values.get(name.lexeme());
+            if (value != null) return value == NIL ? null : value;
         }
 
         if (enclosing != null) return enclosing.get(name);
@@ -48,37 +94,33 @@ public class Environment {
         throw new RuntimeError(name, "Undefined variable '%s'.".formatted(name.lexeme()));
     }
 
-    public Object getAt(final Integer hops, final Token name) {
-        try {
-            return ancestor(hops).values.get(name.lexeme());
-        } catch (final RuntimeError error) {
-            throw new RuntimeError(name, "Undefined variable '%s'.".formatted(name));
-        }
+    public Object getAt(final int hops, final int slot) {
+        return ancestor(hops).valueAt(slot);
     }
 
-    public Object getAt(final Integer hops, final String name) {
-        try {
-            return ancestor(hops).values.get(name);
-        } catch (final RuntimeError error) {
-            throw new RuntimeError("Undefined variable '%s'.".formatted(name));
-        }
+    public Object valueAt(final int slot) {
+        final Object value = slots[slot];
+        return value == UNBOXED ? Numbers.box(numbers[slot]) : value;
+    }
+
+    public boolean isUnboxed(final int slot) {
+        return slots[slot] == UNBOXED;
+    }
+
+    public double numberAt(final int slot) {
+        return numbers[slot];
     }
 
-    private Environment ancestor(final Integer hops) {
+    public Environment ancestor(final int hops) {
         Environment env = this;
         for (int i = 0; i < hops; i++) {
-            // need to add a null check
-            if (env.enclosing == null) {
-                throw new RuntimeError("");
-            }
             env = env.enclosing;
         }
         return env;
     }
 
     public void assign(final Token name, final Object value) {
-        if (values.containsKey(name.lexeme())) {
-            values.put(name.lexeme(), value);
+        if (values != null && values.replace(name.lexeme(), value == null ? NIL : value) != null) {
             return;
         }
 
@@ -90,7 +132,20 @@ public class Environment {
         throw new RuntimeError(name, "Undefined variable '%s'.".formatted(name.lexeme()));
     }
 
-    public void assignAt(final int hops, final Token name, final Object value) {
-        ancestor(hops).values.put(name.lexeme(), value);
+    public void assignAt(final int hops, final int slot, final Object value) {
+        ancestor(hops).slots[slot] = value;
+    }
+
+    public void assignNumberAt(final int hops, final int slot, final double value) {
+        final Environment environment = ancestor(hops);
+        if (environment.numbers == null || environment.numbers.length <= slot) {
+            final double[] grown = new double[environment.slots.length];
+            if (environment.numbers != null) {
+                System.arraycopy(environment.numbers, 0, grown, 0, environment.numbers.length);
+            }
+            environment.numbers = grown;
+        }
+        environment.numbers[slot] = value;
+        environment.slots[slot] = UNBOXED;
     }
 }
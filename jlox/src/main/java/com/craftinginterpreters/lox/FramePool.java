@@ -0,0 +1,28 @@
+package com.craftinginterpreters.lox;
+
+import java.util.Arrays;
+
+// Environments of finished blocks that no function could capture (not `captured` by the Resolver),
+// kept for the next such block. A loop body then uses the same environment on every iteration instead of a new one.
+// Blocks nest, so environments are taken and given back in stack order and the pool never holds more
+// than the deepest nesting of those blocks. Each engine has its own.
+public final class FramePool {
+
+    private Environment[] frames = new Environment[8];
+    private int count = 0;
+
+    public Environment take(final Environment enclosing, final int capacity) {
+        if (count == 0) return new Environment(enclosing, capacity);
+
+        final Environment frame = frames[--count];
+        frames[count] = null;
+        return frame.reuse(enclosing);
+    }
+
+    public void giveBack(final Environment frame) {
+        if (count == frames.length) {
+            frames = Arrays.copyOf(frames, count * 2);
+        }
+        frames[count++] = frame;
+    }
+}
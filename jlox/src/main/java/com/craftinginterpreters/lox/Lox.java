@@ -1,139 +1,236 @@
 package com.craftinginterpreters.lox;
 
 import com.craftinginterpreters.lox.ast.Stmt;
+import com.craftinginterpreters.lox.cache.AstCache;
 import com.craftinginterpreters.lox.common.ProblemReporter;
-import com.craftinginterpreters.lox.common.scanner.Scanner;
 import com.craftinginterpreters.lox.common.token.Token;
-import com.craftinginterpreters.lox.common.token.TokenType;
+import com.craftinginterpreters.lox.compiler.ClosureCompiler;
 import com.craftinginterpreters.lox.parser.Parser;
+import com.craftinginterpreters.lox.profiler.Profiler;
 import com.craftinginterpreters.lox.visitors.Interpreter;
+import com.craftinginterpreters.lox.visitors.Optimizer;
 import com.craftinginterpreters.lox.visitors.Resolver;
 
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStreamReader;
-import java.nio.charset.Charset;
+import java.io.PrintWriter;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.List;
-
-import static com.craftinginterpreters.lox.common.token.TokenType.*;
+import java.util.stream.Stream;
 
 public class Lox {
 
-    private static final Interpreter interpreter = new Interpreter();
+    private static final String ENGINE_FLAG = "--engine=";
+    private static final String TIMINGS_FLAG = "--timings";
+    private static final String CACHE_FLAG = "--cache";
+    private static final String NO_OPTIMIZE_FLAG = "--no-optimize";
+    private static final String PROFILE_FLAG = "--profile";
+
+    private static Engine engine = new Interpreter();
+    private static boolean timings = false;
+    private static AstCache cache = null;
+    private static boolean optimize = true;
+    private static Profiler profiler = null;
 
     public static void main(String[] args) throws IOException {
-        switch (args.length) {
-            case 0: runPrompt(); break;
-            case 1: runFile(args[0]); break;
-            default:
-                System.out.println("Usage: jlox [script]");
-                System.exit(64);
+        final List<String> scripts = new ArrayList<>();
+        Path profile = null;
+        for (final String arg : args) {
+            if (arg.startsWith(ENGINE_FLAG)) {
+                engine = engineFor(arg.substring(ENGINE_FLAG.length()));
+            } else if (arg.equals(TIMINGS_FLAG)) {
+                timings = true;
+            } else if (arg.equals(CACHE_FLAG)) {
+                cache = new AstCache(AstCache.defaultDirectory());
+            } else if (arg.startsWith(CACHE_FLAG + "=")) {
+                cache = new AstCache(Paths.get(arg.substring(CACHE_FLAG.length() + 1)));
+            } else if (arg.equals(NO_OPTIMIZE_FLAG)) {
+                optimize = false;
+            } else if (arg.equals(PROFILE_FLAG)) {
+                profile = Paths.get("profile.collapsed");
+            } else if (arg.startsWith(PROFILE_FLAG + "=")) {
+                profile = Paths.get(arg.substring(PROFILE_FLAG.length() + 1));
+            } else {
+                scripts.add(arg);
+            }
+        }
+        if (profile != null) startProfiler(profile);
+
+        if (scripts.isEmpty()) {
+            runPrompt();
+        } else {
+            runFiles(scriptPaths(scripts));
+        }
+    }
+
+    // A directory stands for the .lox files directly inside it, by name
+    private static List<Path> scriptPaths(final List<String> args) throws IOException {
+        final List<Path> paths = new ArrayList<>();
+        for (final String arg : args) {
+            final Path path = Paths.get(arg);
+            if (!Files.isDirectory(path)) {
+                paths.add(path);
+                continue;
+            }
+            try (Stream<Path> files = Files.list(path)) {
+                files.filter(file -> file.getFileName().toString().endsWith(".lox"))
+                        .filter(Files::isRegularFile)
+                        .sorted()
+                        .forEach(paths::add);
+            }
         }
+        return paths;
     }
 
-    private static void runFile(final String path) throws IOException {
-        final byte[] bytes = Files.readAllBytes(Paths.get(path));
-        final ProblemReporter problemReporter = new ProblemReporter();
-        run(new String(bytes, Charset.defaultCharset()), problemReporter);
+    private static Engine engineFor(final String name) {
+        return switch (name) {
+            case "tree" -> new Interpreter();
+            case "closure" -> new ClosureCompiler();
+            case "vm" -> loadVm();
+            default -> {
+                usage();
+                yield null;
+            }
+        };
+    }
 
-        if (problemReporter.hasErrors()) {
-            problemReporter.printErrors();
-            System.exit(65);
+    // The VM lives in its own source set that builds on this one, so it can only be found at runtime
+    private static Engine loadVm() {
+        try {
+            return (Engine) Class.forName("com.craftinginterpreters.lox.vm.VM").getConstructor().newInstance();
+        } catch (final ReflectiveOperationException e) {
+            System.out.println("The bytecode VM is not on the classpath.");
+            System.exit(64);
+            return null;
         }
+    }
+
+    private static void usage() {
+        System.out.println("Usage: jlox [--engine=tree|closure|vm] [--timings] [--cache[=dir]] [--no-optimize] [--profile[=file]] [script... | directory]");
+        System.exit(64);
+    }
 
-        if (problemReporter.hasRuntimeErrors()) {
-            problemReporter.printRuntimeErrors();
-            System.exit(70);
+    // The report is written on the way out, so runs that end in an error are profiled too
+    private static void startProfiler(final Path collapsed) {
+        if (!(engine instanceof Interpreter interpreter)) {
+            System.out.println("Profiling is only supported by the tree engine.");
+            System.exit(64);
+            return;
         }
+        profiler = new Profiler();
+        interpreter.profile(profiler);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            profiler.printTable(System.err);
+            try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(collapsed))) {
+                profiler.writeCollapsed(out);
+            } catch (final IOException e) {
+                System.err.println("Could not write " + collapsed + ": " + e.getMessage());
+                return;
+            }
+            System.err.println("[profile] collapsed stacks written to " + collapsed);
+        }));
     }
 
-    private static void runPrompt() throws IOException {
-        final InputStreamReader input = new InputStreamReader(System.in);
-        final BufferedReader reader = new BufferedReader(input);
-        final ProblemReporter reporter = new ProblemReporter();
+    private static void interpret(final String name, final List<Stmt> statements, final ProblemReporter reporter) {
+        if (profiler == null) {
+            engine.interpret(statements, reporter);
+            return;
+        }
+        profiler.startScript(name);
+        engine.interpret(statements, reporter);
+        profiler.endScript();
+    }
 
-        List<Token> tokens = new ArrayList<>();
-        String line = "";
-        int indent = 0;
-        while (true) {
-            System.out.print("> " + ".".repeat(4 * indent) + " ");
-            line += reader.readLine();
-            if (line.trim().isBlank()) break;
+    // Files are scanned, parsed and resolved in parallel, then run one after another in the order given.
+    // Errors come out as if each file had been loaded and run on its own in turn: the first file with a
+    // problem reports it and ends the run, and nothing after it is executed or reported.
+    private static void runFiles(final List<Path> paths) throws IOException {
+        final long loadStart = System.nanoTime();
+        final List<ScriptLoader.Script> scripts = paths.size() == 1
+                ? List.of(ScriptLoader.load(paths.getFirst(), cache, optimize))
+                : ScriptLoader.loadAll(paths, cache, optimize);
+        if (timings) {
+            System.err.printf("[timings] loaded %d file(s) in %.2f ms%n", scripts.size(), millis(System.nanoTime() - loadStart));
+        }
+
+        for (final ScriptLoader.Script script : scripts) {
+            if (script.failure() != null) throw script.failure();
 
-            // Not the most efficient to parse everything over an over.
-            // Also, the state is mutable... Not looking for efficiency ATM
-            // To continue to next line, it requires us to open a block statement.
-            // opening if '{' in next line will not be detected. Quite flimsy, but, sure!
-            tokens = replTokenize(line, reporter);
+            final ProblemReporter reporter = script.reporter();
+            final long executeStart = System.nanoTime();
+            if (!reporter.hasErrors() && !script.statements().isEmpty()) {
+                interpret(script.path().toString(), script.statements(), reporter);
+            }
+            if (timings) {
+                final String cached = cache == null ? ""
+                        : ", cache %.2f ms (%s)".formatted(millis(script.cacheNanos()), script.cached() ? "hit" : "miss");
+                System.err.printf("[timings] %s: scan %.2f ms, parse %.2f ms, resolve %.2f ms%s, execute %.2f ms%n",
+                        script.path(), millis(script.scanNanos()), millis(script.parseNanos()),
+                        millis(script.resolveNanos()), cached, millis(System.nanoTime() - executeStart));
+            }
 
             if (reporter.hasErrors()) {
                 reporter.printErrors();
-                reporter.printRuntimeErrors();
-                reporter.clear();
-                line = "";
-                tokens.clear();
+                System.exit(65);
             }
 
-            final List<TokenType> parsedTokenTypes = tokens.stream()
-                    .map(Token::type)
-                    .filter(CONTINUATION_TOKEN_TYPES::contains)
-                    .toList();
-
-            indent = collapsedTokenSize(parsedTokenTypes);
-            if (indent == 0) {
-                run(line, reporter);
-                tokens.clear();
-                line = "";
-
-                // reset session
-                reporter.printErrors();
+            if (reporter.hasRuntimeErrors()) {
                 reporter.printRuntimeErrors();
-                reporter.clear();
+                System.exit(70);
             }
         }
     }
 
-    private static int collapsedTokenSize(final List<TokenType> tokens) {
-        final ArrayDeque<TokenType> stack = new ArrayDeque<>();
-
-        for (final TokenType token : tokens) {
-            if (!stack.isEmpty() && OPEN_TO_CLOSE_TOKEN_TYPE_PAIR.getOrDefault(stack.peek(), COMMENT) == token) {
-                    stack.pop();
-            } else  {
-                stack.push(token);
-            }
-        }
-        return stack.size();
+    private static double millis(final long nanos) {
+        return nanos / 1_000_000.0;
     }
 
-    private static List<Token> replTokenize(final String source, final ProblemReporter reporter) {
-        final Scanner scanner = new Scanner(source, reporter);
-        return scanner.scanTokens();
-    }
+    private static void runPrompt() throws IOException {
+        final InputStreamReader input = new InputStreamReader(System.in);
+        final BufferedReader reader = new BufferedReader(input);
+        final ProblemReporter reporter = new ProblemReporter();
+
+        // To continue to next line, it requires us to open a block statement (or a string).
+        // opening if '{' in next line will not be detected. Quite flimsy, but, sure!
+        ReplEntry entry = new ReplEntry(reporter);
+        while (true) {
+            System.out.print("> " + ".".repeat(4 * entry.depth()) + " ");
+            final String line = reader.readLine();
+            if (line == null || (entry.isEmpty() && line.isBlank())) break;
 
-    // Converts to a list of tokens
-    // Next step is make sense of the tokens.
-    private static void run(final String source, final ProblemReporter reporter) {
-        final Scanner scanner = new Scanner(source, reporter);
-        final List<Token> tokens = scanner.scanTokens();
-        if (reporter.hasErrors()) return;
-        run(tokens, reporter);
+            entry.add(line);
+            if (!reporter.hasErrors() && !entry.isComplete()) continue;
+
+            if (!reporter.hasErrors()) run(entry.tokens(), reporter);
+            entry = new ReplEntry(reporter);
+
+            // reset session
+            reporter.printErrors();
+            reporter.printRuntimeErrors();
+            reporter.clear();
+        }
     }
 
     private static void run(final List<Token> tokens, final ProblemReporter reporter) {
         final Parser parser = new Parser(tokens, reporter);
-        final List<Stmt> statements = parser.parse();
+        List<Stmt> statements = parser.parse();
         if (statements.isEmpty() || reporter.hasErrors() || reporter.hasRuntimeErrors()) return;
 
-        final Resolver resolver = new Resolver(interpreter, reporter);
+        final Resolver resolver = new Resolver(reporter);
         resolver.resolve(statements);
         if (reporter.hasErrors() || reporter.hasRuntimeErrors()) return;
 
-        interpreter.interpret(statements, reporter);
+        if (optimize) {
+            statements = new Optimizer().optimize(statements);
+            new Resolver(reporter).resolve(statements);
+            if (reporter.hasErrors()) return;
+        }
+
+        interpret("<repl>", statements, reporter);
     }
 }
 
@@ -0,0 +1,29 @@
+package com.craftinginterpreters.lox;
+
+// Boxing for numbers that the interpreter computes.
+// Whole numbers in [LOW, HIGH) (loop counters, indexes, small results) share one Double each,
+// everything else is boxed as usual.
+public final class Numbers {
+
+    private static final int LOW = -128;
+    private static final int HIGH = 1024;
+    private static final Double[] CACHE = new Double[HIGH - LOW];
+    private static final long NEGATIVE_ZERO = Double.doubleToRawLongBits(-0.0);
+
+    static {
+        for (int i = 0; i < CACHE.length; i++) {
+            CACHE[i] = (double) (i + LOW);
+        }
+    }
+
+    private Numbers() { }
+
+    public static Double box(final double value) {
+        final int whole = (int) value;
+        // -0.0 == 0 too, but it prints differently and isn't equal to 0 in Lox
+        if (whole == value && whole >= LOW && whole < HIGH && Double.doubleToRawLongBits(value) != NEGATIVE_ZERO) {
+            return CACHE[whole - LOW];
+        }
+        return value;
+    }
+}
@@ -0,0 +1,49 @@
+package com.craftinginterpreters.lox;
+
+import com.craftinginterpreters.lox.ast.Stmt;
+import com.craftinginterpreters.lox.common.ProblemReporter;
+import com.craftinginterpreters.lox.common.scanner.Scanner;
+import com.craftinginterpreters.lox.parser.Parser;
+import com.craftinginterpreters.lox.visitors.Interpreter;
+import com.craftinginterpreters.lox.visitors.Optimizer;
+import com.craftinginterpreters.lox.visitors.Resolver;
+
+import java.io.PrintStream;
+import java.util.List;
+
+// A script that has been scanned, parsed, resolved and optimized once, to be run as often as needed,
+// from as many threads at once as needed. Each run gets an Interpreter of its own, and with it its own
+// environment, globals, classes and output, so runs share nothing but the tree and need no locks.
+public final class Program {
+
+    private final List<Stmt> statements;
+
+    private Program(final List<Stmt> statements) {
+        this.statements = List.copyOf(statements);
+    }
+
+    // Null if the source has errors, which are left in `reporter`
+    public static Program compile(final CharSequence source, final ProblemReporter reporter) {
+        final Scanner scanner = new Scanner(source, reporter);
+        final List<Stmt> parsed = new Parser(scanner.scanPacked().cursor(), reporter).parse();
+        if (reporter.hasErrors()) return null;
+
+        new Resolver(reporter).resolve(parsed);
+        if (reporter.hasErrors()) return null;
+
+        final List<Stmt> statements = new Optimizer().optimize(parsed);
+        new Resolver(reporter).resolve(statements);
+        return reporter.hasErrors() ? null : new Program(statements);
+    }
+
+    public List<Stmt> statements() {
+        return statements;
+    }
+
+    // Runs the whole script from a fresh set of globals. Safe to call from any thread, any number at a time.
+    public ProblemReporter run(final PrintStream out) {
+        final ProblemReporter reporter = new ProblemReporter();
+        new Interpreter(out).interpret(statements, reporter);
+        return reporter;
+    }
+}
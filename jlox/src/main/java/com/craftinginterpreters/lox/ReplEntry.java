@@ -0,0 +1,68 @@
+package com.craftinginterpreters.lox;
+
+import com.craftinginterpreters.lox.common.ProblemReporter;
+import com.craftinginterpreters.lox.common.scanner.Scanner;
+import com.craftinginterpreters.lox.common.token.Token;
+import com.craftinginterpreters.lox.common.token.TokenType;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.craftinginterpreters.lox.common.token.TokenType.*;
+
+// What has been typed at the prompt since the last entry ran. Each line is scanned once, as it comes in,
+// and brackets are counted as their tokens arrive. The entry is complete once they are all closed.
+final class ReplEntry {
+
+    private final StringBuilder source = new StringBuilder();
+    private final Scanner scanner;
+    private final List<Token> tokens = new ArrayList<>();
+
+    // Brackets left open, innermost first. A closing bracket that matches nothing stays here too,
+    // so the entry goes on until the input makes sense again.
+    private final ArrayDeque<TokenType> open = new ArrayDeque<>();
+    // The last line ended inside a string
+    private boolean inString = false;
+
+    ReplEntry(final ProblemReporter reporter) {
+        this.scanner = new Scanner(source, reporter);
+    }
+
+    void add(final String line) {
+        source.append(line).append('\n');
+        final int scanned = tokens.size();
+        inString = !scanner.scanAppended(tokens);
+        for (int i = scanned; i < tokens.size(); i++) {
+            count(tokens.get(i).type());
+        }
+    }
+
+    private void count(final TokenType type) {
+        if (!CONTINUATION_TOKEN_TYPES.contains(type)) return;
+        if (!open.isEmpty() && OPEN_TO_CLOSE_TOKEN_TYPE_PAIR.get(open.peek()) == type) {
+            open.pop();
+        } else {
+            open.push(type);
+        }
+    }
+
+    boolean isEmpty() {
+        return source.isEmpty();
+    }
+
+    // Open brackets, for indenting the prompt
+    int depth() {
+        return open.size();
+    }
+
+    boolean isComplete() {
+        return !inString && open.isEmpty();
+    }
+
+    // Only once complete: the tokens with EOF at the end, ready for the Parser
+    List<Token> tokens() {
+        tokens.add(scanner.next());
+        return tokens;
+    }
+}
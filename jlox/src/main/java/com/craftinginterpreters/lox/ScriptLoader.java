@@ -0,0 +1,116 @@
+package com.craftinginterpreters.lox;
+
+import com.craftinginterpreters.lox.ast.Stmt;
+import com.craftinginterpreters.lox.cache.AstCache;
+import com.craftinginterpreters.lox.common.ProblemReporter;
+import com.craftinginterpreters.lox.common.scanner.PackedTokens;
+import com.craftinginterpreters.lox.common.scanner.Scanner;
+import com.craftinginterpreters.lox.common.scanner.SourceFiles;
+import com.craftinginterpreters.lox.parser.Parser;
+import com.craftinginterpreters.lox.visitors.Optimizer;
+import com.craftinginterpreters.lox.visitors.Resolver;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+// Front end for script files: scan, parse and resolve, one fork-join task per file.
+// Nothing in those phases is shared between files, so each gets its own reporter and runs on its own.
+// Results come back in the order the files were given, whatever order the tasks finished in.
+// With a cache, an unchanged file is read back already resolved, and a freshly resolved one is stored.
+// With `optimize`, a cleanly resolved tree also goes through the Optimizer and is resolved once more.
+final class ScriptLoader {
+
+    // A loaded file. `failure` is set if it couldn't be read, and is left for the caller to raise
+    // when it gets to this file, the way a one-at-a-time run would.
+    record Script(
+            Path path,
+            List<Stmt> statements,
+            ProblemReporter reporter,
+            IOException failure,
+            long scanNanos,
+            long parseNanos,
+            long resolveNanos,
+            // Time spent hashing and reading or writing the cache entry
+            long cacheNanos,
+            boolean cached
+    ) { }
+
+    private ScriptLoader() { }
+
+    // `cache` may be null
+    static List<Script> loadAll(final List<Path> paths, final AstCache cache, final boolean optimize) {
+        final List<Callable<Script>> tasks = paths.stream()
+                .<Callable<Script>>map(path -> () -> load(path, cache, optimize))
+                .toList();
+
+        final List<Future<Script>> results = ForkJoinPool.commonPool().invokeAll(tasks);
+        return results.stream().map(ScriptLoader::join).toList();
+    }
+
+    static Script load(final Path path, final AstCache cache, final boolean optimize) {
+        final ProblemReporter reporter = new ProblemReporter();
+
+        final ByteBuffer bytes;
+        try {
+            bytes = SourceFiles.bytes(path);
+        } catch (final IOException e) {
+            return new Script(path, List.of(), reporter, e, 0, 0, 0, 0, false);
+        }
+
+        String key = null;
+        long cacheNanos = 0;
+        if (cache != null) {
+            final long cacheStart = System.nanoTime();
+            key = cache.key(bytes, optimize);
+            final List<Stmt> cached = cache.read(key);
+            cacheNanos = System.nanoTime() - cacheStart;
+            if (cached != null) return new Script(path, cached, reporter, null, 0, 0, 0, cacheNanos, true);
+        }
+
+        final long scanStart = System.nanoTime();
+        final PackedTokens tokens = new Scanner(SourceFiles.chars(bytes, Charset.defaultCharset()), reporter).scanPacked();
+        final long parseStart = System.nanoTime();
+        if (reporter.hasErrors()) {
+            return new Script(path, List.of(), reporter, null, parseStart - scanStart, 0, 0, cacheNanos, false);
+        }
+
+        List<Stmt> statements = new Parser(tokens.cursor(), reporter).parse();
+        final long resolveStart = System.nanoTime();
+        if (!statements.isEmpty() && !reporter.hasErrors()) {
+            // Resolved as written first, so problems in code the Optimizer drops are still reported
+            new Resolver(reporter).resolve(statements);
+            if (optimize && !reporter.hasErrors()) {
+                statements = new Optimizer().optimize(statements);
+                new Resolver(reporter).resolve(statements);
+            }
+        }
+        final long end = System.nanoTime();
+
+        // Only trees that resolved cleanly are worth keeping
+        if (cache != null && !reporter.hasErrors()) {
+            cache.write(key, statements);
+            cacheNanos += System.nanoTime() - end;
+        }
+
+        return new Script(path, statements, reporter, null,
+                parseStart - scanStart, resolveStart - parseStart, end - resolveStart, cacheNanos, false);
+    }
+
+    private static Script join(final Future<Script> result) {
+        try {
+            return result.get();
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while loading scripts", e);
+        } catch (final ExecutionException e) {
+            throw new IllegalStateException("Failed to load script", e.getCause());
+        }
+    }
+}
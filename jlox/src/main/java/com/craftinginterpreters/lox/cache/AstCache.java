@@ -0,0 +1,109 @@
+package com.craftinginterpreters.lox.cache;
+
+import com.craftinginterpreters.lox.Lox;
+import com.craftinginterpreters.lox.ast.AstReader;
+import com.craftinginterpreters.lox.ast.AstWriter;
+import com.craftinginterpreters.lox.ast.Stmt;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.List;
+
+// On-disk cache of resolved trees, so an unchanged script skips scanning, parsing and resolving.
+// Entries are <key>.loxc, where the key hashes the script's bytes together with the jlox version and
+// the AST format. Editing the script, upgrading jlox or changing the node layout all give a new key;
+// the header repeats version and format in case an entry is ever picked up some other way.
+// The cache is best effort: anything unreadable is a miss, and a failed write is dropped.
+public final class AstCache {
+
+    private static final int MAGIC = 0x4C4F5843; // "LOXC"
+
+    private final Path directory;
+
+    public AstCache(final Path directory) {
+        this.directory = directory;
+    }
+
+    public static Path defaultDirectory() {
+        return Path.of(System.getProperty("user.home"), ".cache", "jlox");
+    }
+
+    // Implementation-Version from the jar manifest, or "dev" when running from a classes directory
+    public static String version() {
+        final String version = Lox.class.getPackage().getImplementationVersion();
+        return version != null ? version : "dev";
+    }
+
+    // Optimized and plain trees of the same source are different entries
+    public String key(final ByteBuffer source, final boolean optimized) {
+        try {
+            final MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            final String header = version() + "\0" + AstWriter.FORMAT + "\0" + (optimized ? "optimized" : "plain") + "\0";
+            digest.update(header.getBytes(StandardCharsets.UTF_8));
+            digest.update(source.duplicate());
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (final NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is always available", e);
+        }
+    }
+
+    public List<Stmt> read(final String key) {
+        final ByteBuffer bytes;
+        try (FileChannel channel = FileChannel.open(entry(key), StandardOpenOption.READ)) {
+            bytes = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        } catch (final IOException e) {
+            // Usually NoSuchFileException: not cached yet
+            return null;
+        }
+
+        try {
+            final AstInput in = new AstInput(bytes);
+            if (in.readInt() != MAGIC) return null;
+            if (!in.readString().equals(version()) || !in.readString().equals(AstWriter.FORMAT)) return null;
+            return new AstReader(in).read();
+        } catch (final RuntimeException e) {
+            // Truncated or otherwise damaged entry
+            return null;
+        }
+    }
+
+    public void write(final String key, final List<Stmt> statements) {
+        Path temp = null;
+        try {
+            Files.createDirectories(directory);
+            // Written aside and moved into place, so readers never see half an entry
+            temp = Files.createTempFile(directory, key, ".tmp");
+            final AstOutput out = new AstOutput();
+            out.writeInt(MAGIC);
+            out.writeString(version());
+            out.writeString(AstWriter.FORMAT);
+            new AstWriter(out).write(statements);
+            try (OutputStream file = Files.newOutputStream(temp)) {
+                out.writeTo(file);
+            }
+            Files.move(temp, entry(key), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (final IOException | RuntimeException e) {
+            if (temp != null) {
+                try {
+                    Files.deleteIfExists(temp);
+                } catch (final IOException ignored) {
+                    // Nothing more to do, the cache is only an optimisation
+                }
+            }
+        }
+    }
+
+    private Path entry(final String key) {
+        return directory.resolve(key + ".loxc");
+    }
+}
@@ -0,0 +1,72 @@
+package com.craftinginterpreters.lox.cache;
+
+import com.craftinginterpreters.lox.common.token.Token;
+import com.craftinginterpreters.lox.common.token.TokenType;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.craftinginterpreters.lox.cache.AstOutput.*;
+
+// Reads what AstOutput wrote. Strings come back as one instance per distinct value.
+public final class AstInput {
+
+    private static final TokenType[] TOKEN_TYPES = TokenType.values();
+
+    private final ByteBuffer in;
+    private final List<String> strings = new ArrayList<>();
+
+    public AstInput(final ByteBuffer in) {
+        this.in = in;
+    }
+
+    public int readTag() {
+        return in.get() & 0xFF;
+    }
+
+    public int readInt() {
+        int bits = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = in.get();
+            bits |= (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return (bits >>> 1) ^ -(bits & 1);
+    }
+
+    public boolean readBoolean() {
+        return readTag() == TRUE;
+    }
+
+    public String readString() {
+        final int index = readInt();
+        if (index < strings.size()) return strings.get(index);
+
+        final byte[] bytes = new byte[readInt()];
+        in.get(bytes);
+        final String value = new String(bytes, StandardCharsets.UTF_8);
+        strings.add(value);
+        return value;
+    }
+
+    public Object readValue() {
+        final int tag = readTag();
+        return switch (tag) {
+            case NIL -> null;
+            case FALSE -> false;
+            case TRUE -> true;
+            case NUMBER -> in.getDouble();
+            case STRING -> readString();
+            default -> throw new IllegalStateException("Unknown literal tag " + tag);
+        };
+    }
+
+    public Token readToken() {
+        final TokenType type = TOKEN_TYPES[readTag()];
+        return new Token(type, readString(), readValue(), readInt());
+    }
+}
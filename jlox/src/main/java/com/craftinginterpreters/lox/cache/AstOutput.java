@@ -0,0 +1,105 @@
+package com.craftinginterpreters.lox.cache;
+
+import com.craftinginterpreters.lox.common.token.Token;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+// Primitives for AstWriter, collected in memory and written out in one go.
+// Ints are variable-length, and every distinct string is written once: later uses are just its
+// index in the order strings were first seen.
+public final class AstOutput {
+
+    static final int NIL = 0;
+    static final int FALSE = 1;
+    static final int TRUE = 2;
+    static final int NUMBER = 3;
+    static final int STRING = 4;
+
+    private byte[] bytes = new byte[8192];
+    private int size = 0;
+    private final Map<String, Integer> strings = new HashMap<>();
+
+    public void writeTag(final int tag) {
+        ensure(1);
+        bytes[size++] = (byte) tag;
+    }
+
+    // Zig-zag encoded so the -1 of unresolved depths and slots stays one byte
+    public void writeInt(final int value) {
+        ensure(5);
+        int bits = (value << 1) ^ (value >> 31);
+        while ((bits & ~0x7F) != 0) {
+            bytes[size++] = (byte) ((bits & 0x7F) | 0x80);
+            bits >>>= 7;
+        }
+        bytes[size++] = (byte) bits;
+    }
+
+    public void writeBoolean(final boolean value) {
+        writeTag(value ? TRUE : FALSE);
+    }
+
+    public void writeString(final String value) {
+        final Integer index = strings.get(value);
+        if (index != null) {
+            writeInt(index);
+            return;
+        }
+
+        writeInt(strings.size());
+        strings.put(value, strings.size());
+        final byte[] text = value.getBytes(StandardCharsets.UTF_8);
+        writeInt(text.length);
+        ensure(text.length);
+        System.arraycopy(text, 0, bytes, size, text.length);
+        size += text.length;
+    }
+
+    // Literal values: nil, booleans, numbers and strings
+    public void writeValue(final Object value) {
+        switch (value) {
+            case null -> writeTag(NIL);
+            case Boolean b -> writeBoolean(b);
+            case Double d -> {
+                writeTag(NUMBER);
+                writeDouble(d);
+            }
+            case String s -> {
+                writeTag(STRING);
+                writeString(s);
+            }
+            default -> throw new IllegalStateException("Can't write a literal of type " + value.getClass());
+        }
+    }
+
+    public void writeToken(final Token token) {
+        writeTag(token.type().ordinal());
+        writeString(token.lexeme());
+        writeValue(token.literal());
+        writeInt(token.line());
+    }
+
+    public void writeTo(final OutputStream out) throws IOException {
+        out.write(bytes, 0, size);
+    }
+
+    // Big-endian, as ByteBuffer reads it back
+    private void writeDouble(final double value) {
+        ensure(8);
+        final long bits = Double.doubleToRawLongBits(value);
+        for (int shift = 56; shift >= 0; shift -= 8) {
+            bytes[size++] = (byte) (bits >>> shift);
+        }
+    }
+
+    private void ensure(final int extra) {
+        if (size + extra > bytes.length) {
+            bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, size + extra));
+        }
+    }
+}
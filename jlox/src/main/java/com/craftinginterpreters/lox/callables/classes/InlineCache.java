@@ -0,0 +1,103 @@
+package com.craftinginterpreters.lox.callables.classes;
+
+import com.craftinginterpreters.lox.callables.functions.LoxFunction;
+import com.craftinginterpreters.lox.common.errors.RuntimeError;
+import com.craftinginterpreters.lox.common.token.Token;
+
+import java.util.Arrays;
+
+// Lives on an Expr.Get or Expr.Set node and remembers what the property name meant for the shapes seen there.
+// Most sites only ever see one shape (monomorphic), a few see a handful (polymorphic).
+// A site that sees more than MAX_SHAPES starts over with the newest one. Instances on a dictionary shape
+// (see Shape) are never cached, they go to their own field map every time. The same AST can be run again
+// with new classes (and so new shapes), and those shouldn't be stuck behind entries for dead ones.
+public final class InlineCache {
+
+    private static final int MAX_SHAPES = 4;
+
+    // For a Get: either a field `slot` or a `method`.
+    // For a Set: the field `slot`, plus the `next` shape when the assignment adds the field.
+    // Entries never change once made, a miss adds a new one.
+    private record Entry(Shape shape, int slot, LoxFunction method, Shape next) { }
+
+    private static final Entry[] EMPTY = new Entry[0];
+
+    // Several Interpreters can run the same tree at once. Entries are replaced, never changed, so a reader
+    // sees either the old or the new array in full; a racing miss may drop another thread's entry, which
+    // only costs that thread a miss of its own.
+    private volatile Entry[] entries = EMPTY;
+
+    public Object get(final LoxInstance instance, final Token name) {
+        if (instance.shape().isDictionary()) return instance.get(name);
+        final Entry entry = lookUp(instance, name);
+        return entry.method() == null ? instance.field(entry.slot()) : entry.method().bind(instance);
+    }
+
+    // For `obj.name(args)`: the method to invoke on `instance` directly, or null when a field shadows it
+    public LoxFunction method(final LoxInstance instance, final Token name) {
+        if (instance.shape().isDictionary()) return instance.method(name);
+        return lookUp(instance, name).method();
+    }
+
+    private Entry lookUp(final LoxInstance instance, final Token name) {
+        final Shape shape = instance.shape();
+        for (final Entry entry : entries) {
+            if (entry.shape() == shape) return entry;
+        }
+
+        // Fields shadow methods
+        final int slot = shape.slotOf(name.lexeme());
+        if (slot >= 0) {
+            return remember(new Entry(shape, slot, null, null));
+        }
+
+        final LoxFunction method = shape.klass().findMethod(name.lexeme());
+        if (method == null) {
+            throw new RuntimeError(name, "Undefined property '%s'.".formatted(name.lexeme()));
+        }
+        return remember(new Entry(shape, -1, method, null));
+    }
+
+    public void set(final LoxInstance instance, final Token name, final Object value) {
+        final Shape shape = instance.shape();
+        if (shape.isDictionary()) {
+            instance.set(name, value);
+            return;
+        }
+
+        for (final Entry entry : entries) {
+            if (entry.shape() == shape) {
+                if (entry.next() != null) instance.reshape(entry.next());
+                instance.setField(entry.slot(), value);
+                return;
+            }
+        }
+
+        int slot = shape.slotOf(name.lexeme());
+        Shape next = null;
+        if (slot < 0) {
+            next = shape.withField(name.lexeme());
+            if (next.isDictionary()) {
+                instance.set(name, value);
+                return;
+            }
+            slot = next.slotOf(name.lexeme());
+            instance.reshape(next);
+        }
+        remember(new Entry(shape, slot, null, next));
+        instance.setField(slot, value);
+    }
+
+    private Entry remember(final Entry entry) {
+        final Entry[] current = entries;
+        if (current.length == MAX_SHAPES) {
+            entries = new Entry[] {entry};
+            return entry;
+        }
+
+        final Entry[] grown = Arrays.copyOf(current, current.length + 1);
+        grown[current.length] = entry;
+        entries = grown;
+        return entry;
+    }
+}
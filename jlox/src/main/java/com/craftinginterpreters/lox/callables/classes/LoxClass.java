@@ -4,19 +4,44 @@ import com.craftinginterpreters.lox.callables.LoxCallable;
 import com.craftinginterpreters.lox.callables.functions.LoxFunction;
 import com.craftinginterpreters.lox.visitors.Interpreter;
 
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
-public class LoxClass implements LoxCallable {
+public final class LoxClass implements LoxCallable {
 
     final String name;
     final LoxClass superClass;
+    // Every method the class responds to, inherited ones included (copy-down).
+    // Classes can't change once declared, so this is built once and a lookup never walks the hierarchy.
     private final Map<String, LoxFunction> methods;
+    private final LoxFunction initializer;
+    private final int arity;
+    // New instances start out with no fields
+    private final Shape rootShape = Shape.root(this);
+    // Instances with too many fields for shapes, see Shape
+    private final Shape dictionaryShape = Shape.dictionary(this);
 
     public LoxClass(final String name, final LoxClass superClass, Map<String, LoxFunction> methods) {
         this.name = name;
         this.superClass = superClass;
-        this.methods = methods;
+
+        final Map<String, LoxFunction> flattened = new HashMap<>();
+        if (superClass != null) flattened.putAll(superClass.methods);
+        // Overrides replace what was copied down
+        flattened.putAll(methods);
+        this.methods = Map.copyOf(flattened);
+
+        this.initializer = this.methods.get("init");
+        this.arity = initializer == null ? 0 : initializer.arity();
+    }
+
+    Shape rootShape() {
+        return rootShape;
+    }
+
+    Shape dictionaryShape() {
+        return dictionaryShape;
     }
 
     @Override
@@ -26,33 +51,21 @@ public class LoxClass implements LoxCallable {
 
     @Override
     public int arity() {
-        final LoxFunction initializer = findMethod("init");
-        if (initializer == null) return 0;
-        return initializer.arity();
+        return arity;
     }
 
     @Override
     public Object call(Interpreter interpreter, List<Object> arguments) {
         final LoxInstance instance = new LoxInstance(this);
 
-        final LoxFunction initializer = findMethod("init");
         if (initializer != null) {
-            initializer.bind(instance).call(interpreter, arguments);
+            initializer.invoke(interpreter, instance, arguments);
         }
 
         return instance;
     }
 
     public LoxFunction findMethod(final String name) {
-        final LoxFunction function = methods.get(name);
-        if (function != null) {
-            return function;
-        }
-
-        if (superClass != null) {
-            return superClass.findMethod(name);
-        }
-
-        return null;
+        return methods.get(name);
     }
 }
@@ -4,16 +4,24 @@ import com.craftinginterpreters.lox.callables.functions.LoxFunction;
 import com.craftinginterpreters.lox.common.errors.RuntimeError;
 import com.craftinginterpreters.lox.common.token.Token;
 
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
 
 public class LoxInstance {
 
-    private LoxClass klass;
-    private final Map<String, Object> fields = new HashMap<>();
+    private static final Object[] NO_FIELDS = new Object[0];
+
+    private final LoxClass klass;
+    // The shape says which field is in which slot
+    private Shape shape;
+    private Object[] fields = NO_FIELDS;
+    // Replaces `fields` once the instance is on its class's dictionary shape
+    private Map<String, Object> dictionary;
 
     public LoxInstance(final LoxClass klass) {
         this.klass = klass;
+        this.shape = klass.rootShape();
     }
 
     @Override
@@ -21,9 +29,17 @@ public class LoxInstance {
         return "<Instance#%s>".formatted(klass.toString());
     }
 
+    public Shape shape() {
+        return shape;
+    }
+
+    // Uncached lookups. The interpreter goes through the InlineCache on the Get/Set node instead.
     public Object get(final Token name) {
-        if (fields.containsKey(name.lexeme())) {
-            return fields.get(name.lexeme());
+        if (dictionary != null) {
+            if (dictionary.containsKey(name.lexeme())) return dictionary.get(name.lexeme());
+        } else {
+            final int slot = shape.slotOf(name.lexeme());
+            if (slot >= 0) return fields[slot];
         }
 
         final LoxFunction method = klass.findMethod(name.lexeme());
@@ -33,6 +49,46 @@ public class LoxInstance {
     }
 
     public void set(final Token name, final Object value) {
-        fields.put(name.lexeme(), value);
+        if (dictionary == null) {
+            int slot = shape.slotOf(name.lexeme());
+            if (slot < 0) {
+                reshape(shape.withField(name.lexeme()));
+                slot = shape.slotOf(name.lexeme());
+            }
+            if (dictionary == null) {
+                fields[slot] = value;
+                return;
+            }
+        }
+        dictionary.put(name.lexeme(), value);
+    }
+
+    // For `obj.name(args)` on the dictionary shape: the method to invoke, or null when a field shadows it
+    LoxFunction method(final Token name) {
+        if (dictionary.containsKey(name.lexeme())) return null;
+
+        final LoxFunction method = klass.findMethod(name.lexeme());
+        if (method == null) throw new RuntimeError(name, "Undefined property '%s'.".formatted(name.lexeme()));
+        return method;
+    }
+
+    Object field(final int slot) {
+        return fields[slot];
+    }
+
+    void setField(final int slot, final Object value) {
+        fields[slot] = value;
+    }
+
+    // Shapes only ever grow by a field at a time, until the dictionary shape takes them all
+    void reshape(final Shape next) {
+        if (next.isDictionary()) {
+            dictionary = new HashMap<>();
+            shape.slots().forEach((name, slot) -> dictionary.put(name, fields[slot]));
+            fields = NO_FIELDS;
+        } else if (next.size() > fields.length) {
+            fields = Arrays.copyOf(fields, Math.max(4, fields.length * 2));
+        }
+        shape = next;
     }
 }
@@ -0,0 +1,70 @@
+package com.craftinginterpreters.lox.callables.classes;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Hidden class: which fields an instance has and where each one lives in its field array.
+// Instances that got the same fields in the same order end up sharing a Shape, so "where is `x`"
+// only needs answering once per shape (see InlineCache).
+// Every class has its own root shape, so a shape also tells which methods an instance has.
+// Each shape copies its parent's slots, so a long chain costs O(n^2). An instance that gets more than MAX_FIELDS
+// fields moves to its class's dictionary shape instead and keeps them in a map of its own (see LoxInstance),
+// which the InlineCache doesn't cache.
+public final class Shape {
+
+    private static final int MAX_FIELDS = 64;
+
+    private final LoxClass klass;
+    // Null for the dictionary shape
+    private final Map<String, Integer> slots;
+    // Adding a field to an instance of this shape moves it to the shape stored here.
+    // Tasks can create instances of the same class at once, and must all end up on the same shapes.
+    private final Map<String, Shape> transitions = new ConcurrentHashMap<>();
+
+    private Shape(final LoxClass klass, final Map<String, Integer> slots) {
+        this.klass = klass;
+        this.slots = slots;
+    }
+
+    static Shape root(final LoxClass klass) {
+        return new Shape(klass, Map.of());
+    }
+
+    static Shape dictionary(final LoxClass klass) {
+        return new Shape(klass, null);
+    }
+
+    public boolean isDictionary() {
+        return slots == null;
+    }
+
+    // Field names to slots, for an instance moving to dictionary mode
+    Map<String, Integer> slots() {
+        return slots;
+    }
+
+    public LoxClass klass() {
+        return klass;
+    }
+
+    public int size() {
+        return slots.size();
+    }
+
+    // -1 when instances of this shape don't have the field, always for the dictionary shape
+    public int slotOf(final String name) {
+        if (slots == null) return -1;
+        final Integer slot = slots.get(name);
+        return slot == null ? -1 : slot;
+    }
+
+    Shape withField(final String name) {
+        if (slots.size() >= MAX_FIELDS) return klass.dictionaryShape();
+        return transitions.computeIfAbsent(name, field -> {
+            final Map<String, Integer> grown = new HashMap<>(slots);
+            grown.put(field, slots.size());
+            return new Shape(klass, grown);
+        });
+    }
+}
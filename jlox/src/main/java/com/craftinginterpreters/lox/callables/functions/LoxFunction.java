@@ -4,6 +4,8 @@ import com.craftinginterpreters.lox.Environment;
 import com.craftinginterpreters.lox.ast.Stmt;
 import com.craftinginterpreters.lox.callables.LoxCallable;
 import com.craftinginterpreters.lox.callables.classes.LoxInstance;
+import com.craftinginterpreters.lox.flows.Completion;
+import com.craftinginterpreters.lox.profiler.Profiler;
 import com.craftinginterpreters.lox.visitors.Interpreter;
 
 import java.util.List;
@@ -14,15 +16,29 @@ public class LoxFunction implements LoxCallable {
     private final Environment closure;
 
     private final Boolean isInitializer;
+    private final boolean isMethod;
+    // Only set for methods taken as values, e.g. `var f = obj.method;`
+    private final LoxInstance receiver;
 
     public LoxFunction(final Stmt.Function declaration, final Environment closure) {
-        this(declaration, closure, false);
+        this(declaration, closure, false, false, null);
     }
 
+    // For methods declared in a class body
     public LoxFunction(final Stmt.Function declaration, final Environment closure, final Boolean isInitializer) {
+        this(declaration, closure, isInitializer, true, null);
+    }
+
+    private LoxFunction(final Stmt.Function declaration,
+                        final Environment closure,
+                        final Boolean isInitializer,
+                        final boolean isMethod,
+                        final LoxInstance receiver) {
         this.declaration = declaration;
         this.closure = closure;
         this.isInitializer = isInitializer;
+        this.isMethod = isMethod;
+        this.receiver = receiver;
     }
 
     @Override
@@ -32,20 +48,34 @@ public class LoxFunction implements LoxCallable {
 
     @Override
     public Object call(Interpreter interpreter, List<Object> arguments) {
-        Environment environment = new Environment(closure);
+        return invoke(interpreter, receiver, arguments);
+    }
 
+    // Runs the body with `receiver` as `this`. Method calls come here directly, without binding first.
+    public Object invoke(final Interpreter interpreter, final LoxInstance receiver, final List<Object> arguments) {
+        // The Resolver puts `this` in front of a method's parameters
+        final Environment environment = new Environment(closure, isMethod ? arity() + 1 : arity());
+
+        if (isMethod) environment.define("this", receiver);
         for (int i = 0; i < arity(); i++) {
             environment.define(declaration.params.get(i).lexeme(), arguments.get(i));
         }
 
-        try {
-            interpreter.executeBlock(declaration.body, environment);
-        } catch (final Return returnValue) {
-            if (isInitializer) return closure.getAt(0, "this");
-            return returnValue.value;
+        final Completion completion;
+        final Profiler profiler = interpreter.profiler();
+        if (profiler == null) {
+            completion = interpreter.executeBlock(declaration.body, environment);
+        } else {
+            profiler.enter(declaration);
+            try {
+                completion = interpreter.executeBlock(declaration.body, environment);
+            } finally {
+                profiler.exit();
+            }
         }
 
-        if (isInitializer) return closure.getAt(0, "this");
+        if (isInitializer) return receiver;
+        if (completion == Completion.RETURN) return interpreter.takeReturnValue();
 
         // If there's no explicit return, then return `nil`
         return null;
@@ -57,9 +87,6 @@ public class LoxFunction implements LoxCallable {
     }
 
     public LoxFunction bind(final LoxInstance instance) {
-        Environment environment = new Environment(closure);
-        environment.define("this", instance);
-        return new LoxFunction(declaration, environment, isInitializer);
+        return new LoxFunction(declaration, closure, isInitializer, true, instance);
     }
 }
-
@@ -0,0 +1,29 @@
+package com.craftinginterpreters.lox.callables.functions.system.arrays;
+
+import com.craftinginterpreters.lox.callables.LoxCallable;
+import com.craftinginterpreters.lox.callables.functions.system.maps.LoxMap;
+import com.craftinginterpreters.lox.common.errors.RuntimeError;
+import com.craftinginterpreters.lox.visitors.Interpreter;
+
+import java.util.List;
+
+// len(array), len(map): how many elements the array holds, or how many keys the map has
+public class Len implements LoxCallable {
+    @Override
+    public int arity() {
+        return 1;
+    }
+
+    @Override
+    public Object call(Interpreter interpreter, List<Object> arguments) {
+        if (arguments.getFirst() instanceof LoxArray array) return (double) array.size();
+        if (arguments.getFirst() instanceof LoxMap map) return (double) map.size();
+
+        throw new RuntimeError("len(array) expects an array or a map. Received " + Interpreter.stringify(arguments.getFirst()));
+    }
+
+    @Override
+    public String toString() {
+        return "<native fn#len(array)>";
+    }
+}
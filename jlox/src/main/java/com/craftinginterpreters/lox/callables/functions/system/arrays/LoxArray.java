@@ -0,0 +1,161 @@
+package com.craftinginterpreters.lox.callables.functions.system.arrays;
+
+import com.craftinginterpreters.lox.Numbers;
+import com.craftinginterpreters.lox.common.errors.RuntimeError;
+import com.craftinginterpreters.lox.common.token.Token;
+import com.craftinginterpreters.lox.visitors.Interpreter;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+
+// Lox's growable array, made by `[a, b, c]` and indexed with `array[i]`.
+// While every element is a number the elements are kept unboxed in `numbers`. The first element that
+// isn't a number moves them all to `values` for good. Slices that hold only numbers start out unboxed again.
+public final class LoxArray {
+
+    private static final double[] NO_NUMBERS = new double[0];
+    private static final int MIN_CAPACITY = 8;
+
+    // Exactly one of the two is in use: `numbers` while it isn't null, `values` after
+    private double[] numbers;
+    private Object[] values;
+    private int size;
+
+    public LoxArray(final List<Object> elements) {
+        this.size = elements.size();
+        if (elements.stream().allMatch(element -> element instanceof Double)) {
+            numbers = size == 0 ? NO_NUMBERS : new double[size];
+            for (int i = 0; i < size; i++) numbers[i] = (Double) elements.get(i);
+        } else {
+            values = elements.toArray();
+        }
+    }
+
+    private LoxArray(final double[] numbers, final Object[] values, final int size) {
+        this.numbers = numbers;
+        this.values = values;
+        this.size = size;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isUnboxed() {
+        return numbers != null;
+    }
+
+    // Position for an index value, or a runtime error at `bracket` (null for natives) if there is no such element
+    public int index(final Token bracket, final Object index) {
+        if (!(index instanceof Double number)) throw error(bracket, "Array index must be a number.");
+        return index(bracket, number.doubleValue());
+    }
+
+    public int index(final Token bracket, final double index) {
+        final int position = (int) index;
+        if (position != index) throw error(bracket, "Array index must be a whole number.");
+        if (position < 0 || position >= size) {
+            throw error(bracket, "Array index %s is out of bounds for length %d.".formatted(Interpreter.stringify(index), size));
+        }
+        return position;
+    }
+
+    private static RuntimeError error(final Token bracket, final String message) {
+        return bracket == null ? new RuntimeError(message) : new RuntimeError(bracket, message);
+    }
+
+    // Only for an unboxed array
+    public double numberAt(final int index) {
+        return numbers[index];
+    }
+
+    public Object get(final int index) {
+        return numbers != null ? Numbers.box(numbers[index]) : values[index];
+    }
+
+    public void set(final int index, final Object value) {
+        if (numbers != null) {
+            if (value instanceof Double number) {
+                numbers[index] = number;
+                return;
+            }
+            box();
+        }
+        values[index] = value;
+    }
+
+    public void setNumber(final int index, final double value) {
+        if (numbers != null) {
+            numbers[index] = value;
+        } else {
+            values[index] = Numbers.box(value);
+        }
+    }
+
+    public void push(final Object value) {
+        if (numbers != null && !(value instanceof Double)) box();
+
+        if (numbers != null) {
+            if (size == numbers.length) numbers = Arrays.copyOf(numbers, grown(size));
+            numbers[size++] = (Double) value;
+        } else {
+            if (size == values.length) values = Arrays.copyOf(values, grown(size));
+            values[size++] = value;
+        }
+    }
+
+    public void pushNumber(final double value) {
+        if (numbers == null) {
+            push(Numbers.box(value));
+            return;
+        }
+        if (size == numbers.length) numbers = Arrays.copyOf(numbers, grown(size));
+        numbers[size++] = value;
+    }
+
+    // nil when empty
+    public Object pop() {
+        if (size == 0) return null;
+        final Object last = get(--size);
+        if (values != null) values[size] = null;
+        return last;
+    }
+
+    // Elements from `from` up to, not including, `to`
+    public LoxArray slice(final int from, final int to) {
+        if (numbers != null) return new LoxArray(Arrays.copyOfRange(numbers, from, to), null, to - from);
+        return new LoxArray(Arrays.asList(Arrays.copyOfRange(values, from, to)));
+    }
+
+    private static int grown(final int size) {
+        return Math.max(MIN_CAPACITY, size * 2);
+    }
+
+    private void box() {
+        values = new Object[Math.max(numbers.length, MIN_CAPACITY)];
+        for (int i = 0; i < size; i++) values[i] = Numbers.box(numbers[i]);
+        numbers = null;
+    }
+
+    @Override
+    public String toString() {
+        return stringify(Collections.newSetFromMap(new IdentityHashMap<>()));
+    }
+
+    // `printing` holds the arrays and maps this one is being printed inside of, so a cycle prints as [...]
+    public String stringify(final Set<Object> printing) {
+        if (!printing.add(this)) return "[...]";
+
+        final StringBuilder text = new StringBuilder("[");
+        for (int i = 0; i < size; i++) {
+            if (i > 0) text.append(", ");
+            text.append(Interpreter.stringify(get(i), printing));
+        }
+
+        printing.remove(this);
+        return text.append("]").toString();
+    }
+}
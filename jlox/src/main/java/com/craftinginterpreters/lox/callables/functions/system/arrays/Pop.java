@@ -0,0 +1,27 @@
+package com.craftinginterpreters.lox.callables.functions.system.arrays;
+
+import com.craftinginterpreters.lox.callables.LoxCallable;
+import com.craftinginterpreters.lox.common.errors.RuntimeError;
+import com.craftinginterpreters.lox.visitors.Interpreter;
+
+import java.util.List;
+
+// pop(array): removes the last element and returns it, nil when the array is empty
+public class Pop implements LoxCallable {
+    @Override
+    public int arity() {
+        return 1;
+    }
+
+    @Override
+    public Object call(Interpreter interpreter, List<Object> arguments) {
+        if (arguments.getFirst() instanceof LoxArray array) return array.pop();
+
+        throw new RuntimeError("pop(array) expects an array. Received " + Interpreter.stringify(arguments.getFirst()));
+    }
+
+    @Override
+    public String toString() {
+        return "<native fn#pop(array)>";
+    }
+}
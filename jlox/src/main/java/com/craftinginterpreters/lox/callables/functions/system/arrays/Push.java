@@ -0,0 +1,30 @@
+package com.craftinginterpreters.lox.callables.functions.system.arrays;
+
+import com.craftinginterpreters.lox.callables.LoxCallable;
+import com.craftinginterpreters.lox.common.errors.RuntimeError;
+import com.craftinginterpreters.lox.visitors.Interpreter;
+
+import java.util.List;
+
+// push(array, value): adds a value at the end of the array
+public class Push implements LoxCallable {
+    @Override
+    public int arity() {
+        return 2;
+    }
+
+    @Override
+    public Object call(Interpreter interpreter, List<Object> arguments) {
+        if (arguments.getFirst() instanceof LoxArray array) {
+            array.push(arguments.get(1));
+            return null;
+        }
+
+        throw new RuntimeError("push(array, value) expects an array. Received " + Interpreter.stringify(arguments.getFirst()));
+    }
+
+    @Override
+    public String toString() {
+        return "<native fn#push(array, value)>";
+    }
+}
@@ -0,0 +1,40 @@
+package com.craftinginterpreters.lox.callables.functions.system.arrays;
+
+import com.craftinginterpreters.lox.callables.LoxCallable;
+import com.craftinginterpreters.lox.common.errors.RuntimeError;
+import com.craftinginterpreters.lox.visitors.Interpreter;
+
+import java.util.List;
+
+// slice(array, from, to): a new array with the elements from `from` up to, not including, `to`
+public class Slice implements LoxCallable {
+    @Override
+    public int arity() {
+        return 3;
+    }
+
+    @Override
+    public Object call(Interpreter interpreter, List<Object> arguments) {
+        if (!(arguments.getFirst() instanceof LoxArray array)) {
+            throw new RuntimeError("slice(array, from, to) expects an array. Received " + Interpreter.stringify(arguments.getFirst()));
+        }
+
+        final int from = bound(arguments.get(1), 0, array.size());
+        final int to = bound(arguments.get(2), from, array.size());
+        return array.slice(from, to);
+    }
+
+    private static int bound(final Object value, final int min, final int max) {
+        if (value instanceof Double number && number >= min && number <= max && number == Math.floor(number)) {
+            return number.intValue();
+        }
+
+        throw new RuntimeError("slice(array, from, to) expects whole numbers with 0 <= from <= to <= len(array). Received "
+                + Interpreter.stringify(value));
+    }
+
+    @Override
+    public String toString() {
+        return "<native fn#slice(array, from, to)>";
+    }
+}
@@ -0,0 +1,30 @@
+package com.craftinginterpreters.lox.callables.functions.system.channels;
+
+import com.craftinginterpreters.lox.callables.LoxCallable;
+import com.craftinginterpreters.lox.common.errors.RuntimeError;
+import com.craftinginterpreters.lox.visitors.Interpreter;
+
+import java.util.List;
+
+// channel(capacity): a new channel that holds up to `capacity` values before send() has to wait
+public class Channel implements LoxCallable {
+    @Override
+    public int arity() {
+        return 1;
+    }
+
+    @Override
+    public Object call(Interpreter interpreter, List<Object> arguments) {
+        if (arguments.getFirst() instanceof Double capacity && capacity >= 1 && capacity == Math.floor(capacity)
+                && capacity <= Integer.MAX_VALUE) {
+            return new LoxChannel(capacity.intValue());
+        }
+
+        throw new RuntimeError("channel(capacity) expects a whole number of at least 1. Received " + Interpreter.stringify(arguments.getFirst()));
+    }
+
+    @Override
+    public String toString() {
+        return "<native fn#channel(capacity)>";
+    }
+}
@@ -0,0 +1,122 @@
+package com.craftinginterpreters.lox.callables.functions.system.channels;
+
+import com.craftinginterpreters.lox.common.errors.RuntimeError;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+// A bounded FIFO between tasks: send() waits while it is full, receive() while it is empty.
+// Waiting parks the task's virtual thread, so thousands of blocked tasks cost only their stacks.
+public final class LoxChannel {
+
+    // ArrayDeque can't hold null, so nil travels as NIL
+    private static final Object NIL = new Object();
+    // What poll() returns when there is nothing to take
+    private static final Object EMPTY = new Object();
+
+    private final int capacity;
+    private final ArrayDeque<Object> buffer = new ArrayDeque<>();
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private final Condition notFull = lock.newCondition();
+    // select() calls waiting on this channel among others, woken up on every send
+    private final List<Semaphore> selectors = new ArrayList<>();
+
+    LoxChannel(final int capacity) {
+        this.capacity = capacity;
+    }
+
+    void send(final Object value) {
+        lock.lock();
+        try {
+            while (buffer.size() == capacity) notFull.await();
+            buffer.addLast(value == null ? NIL : value);
+            notEmpty.signal();
+            for (final Semaphore selector : selectors) selector.release();
+        } catch (final InterruptedException e) {
+            throw interrupted("send");
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    Object receive() {
+        lock.lock();
+        try {
+            while (buffer.isEmpty()) notEmpty.await();
+            return take();
+        } catch (final InterruptedException e) {
+            throw interrupted("receive");
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Takes a value from whichever channel has one first. A selector is registered with every channel
+    // before any is polled, so a send that lands after the poll still wakes it up.
+    static Object select(final LoxChannel... channels) {
+        final Semaphore selector = new Semaphore(0);
+        for (final LoxChannel channel : channels) channel.register(selector);
+        try {
+            while (true) {
+                for (final LoxChannel channel : channels) {
+                    final Object value = channel.poll();
+                    if (value != EMPTY) return value;
+                }
+                selector.acquire();
+            }
+        } catch (final InterruptedException e) {
+            throw interrupted("select");
+        } finally {
+            for (final LoxChannel channel : channels) channel.unregister(selector);
+        }
+    }
+
+    private Object poll() {
+        lock.lock();
+        try {
+            return buffer.isEmpty() ? EMPTY : take();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Only with the lock held and the buffer not empty
+    private Object take() {
+        final Object value = buffer.removeFirst();
+        notFull.signal();
+        return value == NIL ? null : value;
+    }
+
+    private void register(final Semaphore selector) {
+        lock.lock();
+        try {
+            selectors.add(selector);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void unregister(final Semaphore selector) {
+        lock.lock();
+        try {
+            selectors.remove(selector);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static RuntimeError interrupted(final String operation) {
+        Thread.currentThread().interrupt();
+        return new RuntimeError("%s() on a channel was interrupted.".formatted(operation));
+    }
+
+    @Override
+    public String toString() {
+        return "<Channel#%d>".formatted(capacity);
+    }
+}
@@ -0,0 +1,29 @@
+package com.craftinginterpreters.lox.callables.functions.system.channels;
+
+import com.craftinginterpreters.lox.callables.LoxCallable;
+import com.craftinginterpreters.lox.common.errors.RuntimeError;
+import com.craftinginterpreters.lox.visitors.Interpreter;
+
+import java.util.List;
+
+// receive(channel): takes the oldest value off the channel, waiting while it is empty
+public class Receive implements LoxCallable {
+    @Override
+    public int arity() {
+        return 1;
+    }
+
+    @Override
+    public Object call(Interpreter interpreter, List<Object> arguments) {
+        if (arguments.getFirst() instanceof LoxChannel channel) {
+            return channel.receive();
+        }
+
+        throw new RuntimeError("receive(channel) expects a channel. Received " + Interpreter.stringify(arguments.getFirst()));
+    }
+
+    @Override
+    public String toString() {
+        return "<native fn#receive(channel)>";
+    }
+}
@@ -0,0 +1,32 @@
+package com.craftinginterpreters.lox.callables.functions.system.channels;
+
+import com.craftinginterpreters.lox.callables.LoxCallable;
+import com.craftinginterpreters.lox.common.errors.RuntimeError;
+import com.craftinginterpreters.lox.visitors.Interpreter;
+
+import java.util.List;
+
+// select(first, second): receives from whichever of two channels has a value first.
+// Natives have a fixed arity and Lox has no tuples, so it takes two channels and returns just the value;
+// senders that need to be told apart can send different kinds of values.
+public class Select implements LoxCallable {
+    @Override
+    public int arity() {
+        return 2;
+    }
+
+    @Override
+    public Object call(Interpreter interpreter, List<Object> arguments) {
+        if (arguments.get(0) instanceof LoxChannel first && arguments.get(1) instanceof LoxChannel second) {
+            return LoxChannel.select(first, second);
+        }
+
+        throw new RuntimeError("select(first, second) expects two channels. Received %s and %s"
+                .formatted(Interpreter.stringify(arguments.get(0)), Interpreter.stringify(arguments.get(1))));
+    }
+
+    @Override
+    public String toString() {
+        return "<native fn#select(first, second)>";
+    }
+}
@@ -0,0 +1,30 @@
+package com.craftinginterpreters.lox.callables.functions.system.channels;
+
+import com.craftinginterpreters.lox.callables.LoxCallable;
+import com.craftinginterpreters.lox.common.errors.RuntimeError;
+import com.craftinginterpreters.lox.visitors.Interpreter;
+
+import java.util.List;
+
+// send(channel, value): puts a value on the channel, waiting while it is full
+public class Send implements LoxCallable {
+    @Override
+    public int arity() {
+        return 2;
+    }
+
+    @Override
+    public Object call(Interpreter interpreter, List<Object> arguments) {
+        if (arguments.getFirst() instanceof LoxChannel channel) {
+            channel.send(arguments.get(1));
+            return null;
+        }
+
+        throw new RuntimeError("send(channel, value) expects a channel. Received " + Interpreter.stringify(arguments.getFirst()));
+    }
+
+    @Override
+    public String toString() {
+        return "<native fn#send(channel, value)>";
+    }
+}
@@ -0,0 +1,27 @@
+package com.craftinginterpreters.lox.callables.functions.system.maps;
+
+import com.craftinginterpreters.lox.callables.LoxCallable;
+import com.craftinginterpreters.lox.common.errors.RuntimeError;
+import com.craftinginterpreters.lox.visitors.Interpreter;
+
+import java.util.List;
+
+// contains(map, key): whether the map has the key
+public class Contains implements LoxCallable {
+    @Override
+    public int arity() {
+        return 2;
+    }
+
+    @Override
+    public Object call(Interpreter interpreter, List<Object> arguments) {
+        if (arguments.getFirst() instanceof LoxMap map) return map.contains(null, arguments.get(1));
+
+        throw new RuntimeError("contains(map, key) expects a map. Received " + Interpreter.stringify(arguments.getFirst()));
+    }
+
+    @Override
+    public String toString() {
+        return "<native fn#contains(map, key)>";
+    }
+}
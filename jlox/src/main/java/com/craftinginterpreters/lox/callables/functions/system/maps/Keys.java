@@ -0,0 +1,27 @@
+package com.craftinginterpreters.lox.callables.functions.system.maps;
+
+import com.craftinginterpreters.lox.callables.LoxCallable;
+import com.craftinginterpreters.lox.common.errors.RuntimeError;
+import com.craftinginterpreters.lox.visitors.Interpreter;
+
+import java.util.List;
+
+// keys(map): an array of the map's keys, in no particular order
+public class Keys implements LoxCallable {
+    @Override
+    public int arity() {
+        return 1;
+    }
+
+    @Override
+    public Object call(Interpreter interpreter, List<Object> arguments) {
+        if (arguments.getFirst() instanceof LoxMap map) return map.keys();
+
+        throw new RuntimeError("keys(map) expects a map. Received " + Interpreter.stringify(arguments.getFirst()));
+    }
+
+    @Override
+    public String toString() {
+        return "<native fn#keys(map)>";
+    }
+}
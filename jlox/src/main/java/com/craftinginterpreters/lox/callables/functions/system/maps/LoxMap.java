@@ -0,0 +1,252 @@
+package com.craftinginterpreters.lox.callables.functions.system.maps;
+
+import com.craftinginterpreters.lox.Numbers;
+import com.craftinginterpreters.lox.callables.functions.system.arrays.LoxArray;
+import com.craftinginterpreters.lox.common.errors.RuntimeError;
+import com.craftinginterpreters.lox.common.token.Token;
+import com.craftinginterpreters.lox.visitors.Interpreter;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+
+// Lox's map, made by map() and used with `m[key]`, `m[key] = value` and the map natives.
+// Keys are strings or numbers. The table is open addressing with linear probing over parallel arrays:
+// a slot's kind, its key's hash, its string key or the bits of its number key, and its value. Probing compares
+// hashes before touching a string, and growing never rehashes a key. The string and number key arrays are only
+// allocated once a key of their kind goes in. Number keys are never boxed,
+// and there are no per-entry objects, so walking the slots (keys(), toString) allocates nothing per element.
+// Removing shifts the rest of the probe run back instead of leaving tombstones.
+public final class LoxMap {
+
+    private static final byte EMPTY = 0;
+    private static final byte STRING = 1;
+    private static final byte NUMBER = 2;
+
+    private static final int MIN_CAPACITY = 8;
+    private static final int MAX_CAPACITY = 1 << 30;
+
+    private byte[] kinds;
+    private int[] hashes;
+    // Null until the map gets a key of that kind
+    private String[] strings;
+    private long[] numbers;
+    private Object[] values;
+    private int size;
+    // capacity - 1, and 32 - log2(capacity) for the Fibonacci hash
+    private int mask;
+    private int shift;
+
+    public LoxMap() {
+        allocate(MIN_CAPACITY);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    // The calls that take a Token check the key and report a bad one at that token, or without a line when it is null (natives)
+
+    public Object get(final Token token, final Object key) {
+        final int slot = find(token, key);
+        return slot >= 0 ? values[slot] : null;
+    }
+
+    public Object get(final double key) {
+        final int slot = find(bits(key));
+        return slot >= 0 ? values[slot] : null;
+    }
+
+    public boolean contains(final Token token, final Object key) {
+        return find(token, key) >= 0;
+    }
+
+    public void put(final Token token, final Object key, final Object value) {
+        if (key instanceof Double number) {
+            put(number.doubleValue(), value);
+            return;
+        }
+
+        int slot = find(token, key);
+        if (slot >= 0) {
+            values[slot] = value;
+            return;
+        }
+        if (grow()) slot = find((String) key);
+        insert(~slot, STRING, key.hashCode(), (String) key, 0, value);
+    }
+
+    public void put(final double key, final Object value) {
+        final long bits = bits(key);
+        int slot = find(bits);
+        if (slot >= 0) {
+            values[slot] = value;
+            return;
+        }
+        if (grow()) slot = find(bits);
+        insert(~slot, NUMBER, Long.hashCode(bits), null, bits, value);
+    }
+
+    // The value that was there, nil if there was none
+    public Object remove(final Token token, final Object key) {
+        final int slot = find(token, key);
+        if (slot < 0) return null;
+
+        final Object value = values[slot];
+        delete(slot);
+        return value;
+    }
+
+    // An array of the keys, in table order
+    public LoxArray keys() {
+        final LoxArray keys = new LoxArray(List.of());
+        for (int slot = next(0); slot >= 0; slot = next(slot + 1)) {
+            if (kinds[slot] == NUMBER) {
+                keys.pushNumber(Double.longBitsToDouble(numbers[slot]));
+            } else {
+                keys.push(strings[slot]);
+            }
+        }
+        return keys;
+    }
+
+    // First used slot at or after `slot`, -1 past the last one
+    private int next(int slot) {
+        while (slot < kinds.length && kinds[slot] == EMPTY) slot++;
+        return slot < kinds.length ? slot : -1;
+    }
+
+    private Object keyAt(final int slot) {
+        return kinds[slot] == NUMBER ? Numbers.box(Double.longBitsToDouble(numbers[slot])) : strings[slot];
+    }
+
+    // The slot holding the key, or ~slot of the empty slot where it would go
+    private int find(final Token token, final Object key) {
+        if (key instanceof String string) return find(string);
+        if (key instanceof Double number) return find(bits(number));
+
+        final String message = "Map keys must be strings or numbers. Received " + Interpreter.stringify(key);
+        throw token == null ? new RuntimeError(message) : new RuntimeError(token, message);
+    }
+
+    private int find(final String key) {
+        final int hash = key.hashCode();
+        for (int slot = home(hash); ; slot = (slot + 1) & mask) {
+            if (kinds[slot] == EMPTY) return ~slot;
+            if (hashes[slot] == hash && kinds[slot] == STRING && strings[slot].equals(key)) return slot;
+        }
+    }
+
+    private int find(final long key) {
+        for (int slot = home(Long.hashCode(key)); ; slot = (slot + 1) & mask) {
+            if (kinds[slot] == EMPTY) return ~slot;
+            if (kinds[slot] == NUMBER && numbers[slot] == key) return slot;
+        }
+    }
+
+    // Same numbers are the same key, as in `==`. So 0 and -0 are different keys.
+    private static long bits(final double key) {
+        return Double.doubleToLongBits(key);
+    }
+
+    private int home(final int hash) {
+        return (hash * 0x9E3779B9) >>> shift;
+    }
+
+    private void insert(final int slot, final byte kind, final int hash, final String string, final long number, final Object value) {
+        kinds[slot] = kind;
+        hashes[slot] = hash;
+        if (kind == STRING) {
+            if (strings == null) strings = new String[kinds.length];
+            strings[slot] = string;
+        } else {
+            if (numbers == null) numbers = new long[kinds.length];
+            numbers[slot] = number;
+        }
+        values[slot] = value;
+        size++;
+    }
+
+    // Copies an entry of the arrays given into `slot`
+    private void move(final int slot, final int from, final byte[] fromKinds, final int[] fromHashes,
+                      final String[] fromStrings, final long[] fromNumbers, final Object[] fromValues) {
+        kinds[slot] = fromKinds[from];
+        hashes[slot] = fromHashes[from];
+        if (fromKinds[from] == STRING) {
+            strings[slot] = fromStrings[from];
+        } else {
+            numbers[slot] = fromNumbers[from];
+            if (strings != null) strings[slot] = null;
+        }
+        values[slot] = fromValues[from];
+    }
+
+    // Empties the slot and moves back the entries after it that can't be found past the hole any more
+    private void delete(int hole) {
+        for (int slot = (hole + 1) & mask; kinds[slot] != EMPTY; slot = (slot + 1) & mask) {
+            final int home = home(hashes[slot]);
+            if (((slot - home) & mask) >= ((slot - hole) & mask)) {
+                move(hole, slot, kinds, hashes, strings, numbers, values);
+                hole = slot;
+            }
+        }
+        kinds[hole] = EMPTY;
+        if (strings != null) strings[hole] = null;
+        values[hole] = null;
+        size--;
+    }
+
+    // Keeps the table at most 3/4 full. True when it was rebuilt, which moves every slot.
+    private boolean grow() {
+        if ((size + 1) * 4L <= kinds.length * 3L) return false;
+        if (kinds.length == MAX_CAPACITY) throw new RuntimeError("Map is too big.");
+
+        final byte[] oldKinds = kinds;
+        final int[] oldHashes = hashes;
+        final String[] oldStrings = strings;
+        final long[] oldNumbers = numbers;
+        final Object[] oldValues = values;
+        allocate(oldKinds.length * 2);
+        if (oldStrings != null) strings = new String[kinds.length];
+        if (oldNumbers != null) numbers = new long[kinds.length];
+
+        for (int old = 0; old < oldKinds.length; old++) {
+            if (oldKinds[old] == EMPTY) continue;
+            int slot = home(oldHashes[old]);
+            while (kinds[slot] != EMPTY) slot = (slot + 1) & mask;
+            move(slot, old, oldKinds, oldHashes, oldStrings, oldNumbers, oldValues);
+        }
+        return true;
+    }
+
+    private void allocate(final int capacity) {
+        kinds = new byte[capacity];
+        hashes = new int[capacity];
+        strings = null;
+        numbers = null;
+        values = new Object[capacity];
+        mask = capacity - 1;
+        shift = 32 - Integer.numberOfTrailingZeros(capacity);
+    }
+
+    @Override
+    public String toString() {
+        return stringify(Collections.newSetFromMap(new IdentityHashMap<>()));
+    }
+
+    // Like LoxArray's: a map already being printed further out prints as {...}
+    public String stringify(final Set<Object> printing) {
+        if (!printing.add(this)) return "{...}";
+
+        final StringBuilder text = new StringBuilder("{");
+        for (int slot = next(0); slot >= 0; slot = next(slot + 1)) {
+            if (text.length() > 1) text.append(", ");
+            text.append(Interpreter.stringify(keyAt(slot))).append(": ");
+            text.append(Interpreter.stringify(values[slot], printing));
+        }
+
+        printing.remove(this);
+        return text.append("}").toString();
+    }
+}
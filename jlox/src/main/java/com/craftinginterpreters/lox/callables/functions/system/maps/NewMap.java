@@ -0,0 +1,24 @@
+package com.craftinginterpreters.lox.callables.functions.system.maps;
+
+import com.craftinginterpreters.lox.callables.LoxCallable;
+import com.craftinginterpreters.lox.visitors.Interpreter;
+
+import java.util.List;
+
+// map(): a new, empty map
+public class NewMap implements LoxCallable {
+    @Override
+    public int arity() {
+        return 0;
+    }
+
+    @Override
+    public Object call(Interpreter interpreter, List<Object> arguments) {
+        return new LoxMap();
+    }
+
+    @Override
+    public String toString() {
+        return "<native fn#map()>";
+    }
+}
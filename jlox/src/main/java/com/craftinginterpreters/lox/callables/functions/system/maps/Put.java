@@ -0,0 +1,30 @@
+package com.craftinginterpreters.lox.callables.functions.system.maps;
+
+import com.craftinginterpreters.lox.callables.LoxCallable;
+import com.craftinginterpreters.lox.common.errors.RuntimeError;
+import com.craftinginterpreters.lox.visitors.Interpreter;
+
+import java.util.List;
+
+// put(map, key, value): sets the value for the key. Keys are strings or numbers.
+public class Put implements LoxCallable {
+    @Override
+    public int arity() {
+        return 3;
+    }
+
+    @Override
+    public Object call(Interpreter interpreter, List<Object> arguments) {
+        if (arguments.getFirst() instanceof LoxMap map) {
+            map.put(null, arguments.get(1), arguments.get(2));
+            return null;
+        }
+
+        throw new RuntimeError("put(map, key, value) expects a map. Received " + Interpreter.stringify(arguments.getFirst()));
+    }
+
+    @Override
+    public String toString() {
+        return "<native fn#put(map, key, value)>";
+    }
+}
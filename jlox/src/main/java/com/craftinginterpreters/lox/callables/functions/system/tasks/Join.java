@@ -0,0 +1,29 @@
+package com.craftinginterpreters.lox.callables.functions.system.tasks;
+
+import com.craftinginterpreters.lox.callables.LoxCallable;
+import com.craftinginterpreters.lox.common.errors.RuntimeError;
+import com.craftinginterpreters.lox.visitors.Interpreter;
+
+import java.util.List;
+
+// join(task): waits for the task to finish and returns what its function returned
+public class Join implements LoxCallable {
+    @Override
+    public int arity() {
+        return 1;
+    }
+
+    @Override
+    public Object call(Interpreter interpreter, List<Object> arguments) {
+        if (arguments.getFirst() instanceof LoxTask task) {
+            return task.join();
+        }
+
+        throw new RuntimeError("join(task) expects a task from spawn(). Received " + Interpreter.stringify(arguments.getFirst()));
+    }
+
+    @Override
+    public String toString() {
+        return "<native fn#join(task)>";
+    }
+}
@@ -0,0 +1,52 @@
+package com.craftinginterpreters.lox.callables.functions.system.tasks;
+
+import com.craftinginterpreters.lox.callables.LoxCallable;
+import com.craftinginterpreters.lox.common.errors.RuntimeError;
+import com.craftinginterpreters.lox.visitors.Interpreter;
+
+import java.util.List;
+
+// What spawn() returns: a function running on a virtual thread of its own, with an Interpreter of its own.
+// join() waits for it and hands back its return value, or raises the runtime error it stopped with.
+public final class LoxTask {
+
+    private final Thread thread;
+    // Written by the task's thread before it ends, read after join()
+    private Object result;
+    // Whatever stopped it, so a failed task never looks like one that returned nil
+    private Throwable failure;
+
+    LoxTask(final Interpreter interpreter, final LoxCallable function) {
+        this.thread = Thread.ofVirtual().start(() -> {
+            try {
+                result = function.call(interpreter, List.of());
+            } catch (final StackOverflowError error) {
+                failure = new RuntimeError("Stack overflow.");
+            } catch (final Throwable error) {
+                failure = error;
+            }
+        });
+    }
+
+    Object join() {
+        try {
+            thread.join();
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeError("join(task) was interrupted.");
+        }
+        switch (failure) {
+            case null -> {
+                return result;
+            }
+            case RuntimeException exception -> throw exception;
+            case Error error -> throw error;
+            default -> throw new IllegalStateException("Task failed", failure);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "<Task#%d>".formatted(thread.threadId());
+    }
+}
@@ -0,0 +1,30 @@
+package com.craftinginterpreters.lox.callables.functions.system.tasks;
+
+import com.craftinginterpreters.lox.callables.LoxCallable;
+import com.craftinginterpreters.lox.common.errors.RuntimeError;
+import com.craftinginterpreters.lox.visitors.Interpreter;
+
+import java.util.List;
+
+// spawn(function): calls a function without parameters on a new virtual thread and returns its task.
+// Arguments go in through a closure, results come back through join() or a channel.
+public class Spawn implements LoxCallable {
+    @Override
+    public int arity() {
+        return 1;
+    }
+
+    @Override
+    public Object call(Interpreter interpreter, List<Object> arguments) {
+        if (arguments.getFirst() instanceof LoxCallable function && function.arity() == 0) {
+            return new LoxTask(interpreter.spawned(), function);
+        }
+
+        throw new RuntimeError("spawn(function) expects a function without parameters. Received " + Interpreter.stringify(arguments.getFirst()));
+    }
+
+    @Override
+    public String toString() {
+        return "<native fn#spawn(function)>";
+    }
+}
@@ -0,0 +1,787 @@
+package com.craftinginterpreters.lox.compiler;
+
+import com.craftinginterpreters.lox.Engine;
+import com.craftinginterpreters.lox.Environment;
+import com.craftinginterpreters.lox.FramePool;
+import com.craftinginterpreters.lox.ast.Expr;
+import com.craftinginterpreters.lox.ast.Stmt;
+import com.craftinginterpreters.lox.callables.LoxCallable;
+import com.craftinginterpreters.lox.callables.functions.system.arrays.Len;
+import com.craftinginterpreters.lox.callables.functions.system.arrays.LoxArray;
+import com.craftinginterpreters.lox.callables.functions.system.arrays.Pop;
+import com.craftinginterpreters.lox.callables.functions.system.arrays.Push;
+import com.craftinginterpreters.lox.callables.functions.system.arrays.Slice;
+import com.craftinginterpreters.lox.callables.functions.system.maps.Contains;
+import com.craftinginterpreters.lox.callables.functions.system.maps.Get;
+import com.craftinginterpreters.lox.callables.functions.system.maps.Keys;
+import com.craftinginterpreters.lox.callables.functions.system.maps.LoxMap;
+import com.craftinginterpreters.lox.callables.functions.system.maps.NewMap;
+import com.craftinginterpreters.lox.callables.functions.system.maps.Put;
+import com.craftinginterpreters.lox.callables.functions.system.maps.Remove;
+import com.craftinginterpreters.lox.callables.functions.system.numbers.IsEven;
+import com.craftinginterpreters.lox.callables.functions.system.time.Clock;
+import com.craftinginterpreters.lox.common.ProblemReporter;
+import com.craftinginterpreters.lox.common.errors.RuntimeError;
+import com.craftinginterpreters.lox.common.token.Token;
+import com.craftinginterpreters.lox.common.token.TokenType;
+import com.craftinginterpreters.lox.flows.Completion;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BinaryOperator;
+
+import static com.craftinginterpreters.lox.visitors.Interpreter.isEqual;
+import static com.craftinginterpreters.lox.visitors.Interpreter.isTruthy;
+import static com.craftinginterpreters.lox.visitors.Interpreter.stringify;
+
+// Second execution engine. Instead of walking the AST on every evaluation, every Stmt/Expr is visited once
+// and turned into a lambda with its operator, slot or call target already decided.
+// Runtime semantics (and error messages) follow the Interpreter.
+public class ClosureCompiler implements Engine, Expr.Visitor<Evaluator>, Stmt.Visitor<Executor> {
+
+    private static final long MAX_EXACT_INTEGER = 1L << 53;
+
+    private final Environment globals = new Environment();
+    private final FramePool frames = new FramePool();
+
+    // Set by a `return` executor and picked up by the CompiledFunction it completes
+    private Object returnValue;
+
+    public ClosureCompiler() {
+        globals.define("clock", new Clock());
+        globals.define("isEven", new IsEven());
+        globals.define("len", new Len());
+        globals.define("push", new Push());
+        globals.define("pop", new Pop());
+        globals.define("slice", new Slice());
+        globals.define("map", new NewMap());
+        globals.define("get", new Get());
+        globals.define("put", new Put());
+        globals.define("remove", new Remove());
+        globals.define("contains", new Contains());
+        globals.define("keys", new Keys());
+    }
+
+    @Override
+    public void interpret(final List<Stmt> statements, final ProblemReporter reporter) {
+        final Executor[] program = compile(statements);
+        try {
+            for (final Executor statement : program) {
+                statement.execute(globals);
+            }
+        } catch (final RuntimeError error) {
+            reporter.runtimeError(error);
+        }
+    }
+
+    private Executor[] compile(final List<Stmt> statements) {
+        final Executor[] executors = new Executor[statements.size()];
+        for (int i = 0; i < executors.length; i++) {
+            executors[i] = statements.get(i).accept(this);
+        }
+        return executors;
+    }
+
+    private Evaluator compile(final Expr expr) {
+        return expr.accept(this);
+    }
+
+    private CompiledFunction.Template compileFunction(final Stmt.Function stmt, final boolean isMethod) {
+        final int locals = (isMethod ? 1 : 0) + stmt.params.size() + countDeclarations(stmt.body);
+        return new CompiledFunction.Template(
+                stmt.name.lexeme(), stmt.params.size(), isMethod, locals, compile(stmt.body), this);
+    }
+
+    Object takeReturnValue() {
+        final Object value = returnValue;
+        returnValue = null;
+        return value;
+    }
+
+    // Each declaration directly inside a scope takes one slot, so environments can be sized up front
+    private static int countDeclarations(final List<Stmt> statements) {
+        int count = 0;
+        for (final Stmt statement : statements) {
+            if (statement instanceof Stmt.Var || statement instanceof Stmt.Function || statement instanceof Stmt.Class) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    @Override
+    public Executor visitBlockStmt(Stmt.Block stmt) {
+        final Executor[] statements = compile(stmt.statements);
+        final int locals = countDeclarations(stmt.statements);
+
+        if (!stmt.scoped) return environment -> execute(statements, environment);
+
+        if (stmt.captured) {
+            return environment -> execute(statements, new Environment(environment, locals));
+        }
+
+        return environment -> {
+            final Environment blockEnvironment = frames.take(environment, locals);
+            final Completion completion = execute(statements, blockEnvironment);
+            frames.giveBack(blockEnvironment);
+            return completion;
+        };
+    }
+
+    private static Completion execute(final Executor[] statements, final Environment environment) {
+        for (final Executor statement : statements) {
+            final Completion completion = statement.execute(environment);
+            if (completion != Completion.NORMAL) return completion;
+        }
+        return Completion.NORMAL;
+    }
+
+    @Override
+    public Executor visitClassStmt(Stmt.Class stmt) {
+        final String name = stmt.name.lexeme();
+        final Evaluator superclassEvaluator = stmt.superclass == null ? null : compile(stmt.superclass);
+        final Token superclassName = stmt.superclass == null ? null : stmt.superclass.name;
+
+        final Map<String, CompiledFunction.Template> templates = new HashMap<>();
+        for (final Stmt.Function method : stmt.methods) {
+            templates.put(method.name.lexeme(), compileFunction(method, true));
+        }
+
+        return environment -> {
+            CompiledClass superclass = null;
+            if (superclassEvaluator != null) {
+                final Object value = superclassEvaluator.evaluate(environment);
+                if (!(value instanceof CompiledClass klass)) {
+                    throw new RuntimeError(superclassName, "Superclass must be a class.");
+                }
+                superclass = klass;
+            }
+
+            Environment methodEnvironment = environment;
+            if (superclass != null) {
+                methodEnvironment = new Environment(environment);
+                methodEnvironment.define("super", superclass);
+            }
+
+            final Map<String, CompiledFunction> methods = new HashMap<>();
+            for (final Map.Entry<String, CompiledFunction.Template> template : templates.entrySet()) {
+                final boolean isInitializer = template.getKey().equals("init");
+                methods.put(template.getKey(), new CompiledFunction(template.getValue(), methodEnvironment, isInitializer));
+            }
+
+            environment.define(name, new CompiledClass(name, superclass, methods));
+            return Completion.NORMAL;
+        };
+    }
+
+    @Override
+    public Executor visitExpressionStmt(Stmt.Expression stmt) {
+        final Evaluator expression = compile(stmt.expression);
+        return environment -> {
+            expression.evaluate(environment);
+            return Completion.NORMAL;
+        };
+    }
+
+    @Override
+    public Executor visitFunctionStmt(Stmt.Function stmt) {
+        final String name = stmt.name.lexeme();
+        final CompiledFunction.Template template = compileFunction(stmt, false);
+        return environment -> {
+            environment.define(name, new CompiledFunction(template, environment, false));
+            return Completion.NORMAL;
+        };
+    }
+
+    @Override
+    public Executor visitIfStmt(Stmt.If stmt) {
+        final Evaluator condition = compile(stmt.condition);
+        final Executor thenBranch = stmt.thenBranch.accept(this);
+
+        if (stmt.elseBranch == null) {
+            return environment -> {
+                if (isTruthy(condition.evaluate(environment))) return thenBranch.execute(environment);
+                return Completion.NORMAL;
+            };
+        }
+
+        final Executor elseBranch = stmt.elseBranch.accept(this);
+        return environment -> {
+            if (isTruthy(condition.evaluate(environment))) {
+                return thenBranch.execute(environment);
+            } else {
+                return elseBranch.execute(environment);
+            }
+        };
+    }
+
+    @Override
+    public Executor visitPrintStmt(Stmt.Print stmt) {
+        final Evaluator expression = compile(stmt.expression);
+        return environment -> {
+            System.out.println(stringify(expression.evaluate(environment)));
+            return Completion.NORMAL;
+        };
+    }
+
+    @Override
+    public Executor visitReturnStmt(Stmt.Return stmt) {
+        if (stmt.value == null) {
+            return environment -> {
+                returnValue = null;
+                return Completion.RETURN;
+            };
+        }
+
+        final Evaluator value = compile(stmt.value);
+        return environment -> {
+            returnValue = value.evaluate(environment);
+            return Completion.RETURN;
+        };
+    }
+
+    @Override
+    public Executor visitWhileStmt(Stmt.While stmt) {
+        final Evaluator condition = compile(stmt.condition);
+        final Executor body = stmt.body.accept(this);
+        return environment -> {
+            while (isTruthy(condition.evaluate(environment))) {
+                final Completion completion = body.execute(environment);
+                if (completion == Completion.BREAK) break;
+                if (completion == Completion.RETURN) return completion;
+            }
+            return Completion.NORMAL;
+        };
+    }
+
+    @Override
+    public Executor visitBreakStmt(Stmt.Break stmt) {
+        return environment -> Completion.BREAK;
+    }
+
+    @Override
+    public Executor visitContinueStmt(Stmt.Continue stmt) {
+        return environment -> Completion.CONTINUE;
+    }
+
+    @Override
+    public Executor visitVarStmt(Stmt.Var stmt) {
+        final String name = stmt.name.lexeme();
+        if (stmt.initializer == null) {
+            return environment -> {
+                environment.define(name, null);
+                return Completion.NORMAL;
+            };
+        }
+
+        final Evaluator initializer = compile(stmt.initializer);
+        return environment -> {
+            environment.define(name, initializer.evaluate(environment));
+            return Completion.NORMAL;
+        };
+    }
+
+    @Override
+    public Evaluator visitAssignExpr(Expr.Assign expr) {
+        final Evaluator value = compile(expr.value);
+        final Token name = expr.name;
+        final int depth = expr.depth;
+        final int slot = expr.slot;
+
+        if (depth < 0) {
+            return environment -> {
+                final Object result = value.evaluate(environment);
+                globals.assign(name, result);
+                return result;
+            };
+        }
+
+        return environment -> {
+            final Object result = value.evaluate(environment);
+            environment.assignAt(depth, slot, result);
+            return result;
+        };
+    }
+
+    @Override
+    public Evaluator visitBinaryExpr(Expr.Binary expr) {
+        final Evaluator left = compile(expr.left);
+        final Evaluator right = compile(expr.right);
+        final Token operator = expr.operator;
+
+        return switch (operator.type()) {
+            case GREATER -> environment -> {
+                final Object l = left.evaluate(environment);
+                final Object r = right.evaluate(environment);
+                checkNumberOperands(operator, l, r);
+                return (double) l > (double) r;
+            };
+            case GREATER_EQUAL -> environment -> {
+                final Object l = left.evaluate(environment);
+                final Object r = right.evaluate(environment);
+                checkNumberOperands(operator, l, r);
+                return (double) l >= (double) r;
+            };
+            case LESS -> environment -> {
+                final Object l = left.evaluate(environment);
+                final Object r = right.evaluate(environment);
+                checkNumberOperands(operator, l, r);
+                return (double) l < (double) r;
+            };
+            case LESS_EQUAL -> environment -> {
+                final Object l = left.evaluate(environment);
+                final Object r = right.evaluate(environment);
+                checkNumberOperands(operator, l, r);
+                return (double) l <= (double) r;
+            };
+            case MODULUS -> environment -> {
+                final Object l = left.evaluate(environment);
+                final Object r = right.evaluate(environment);
+                checkNumberOperands(operator, l, r);
+                return remainder((double) l, (double) r);
+            };
+            case MINUS -> environment -> {
+                final Object l = left.evaluate(environment);
+                final Object r = right.evaluate(environment);
+                checkNumberOperands(operator, l, r);
+                return (double) l - (double) r;
+            };
+            case PLUS -> environment -> {
+                final Object l = left.evaluate(environment);
+                final Object r = right.evaluate(environment);
+                if (l instanceof Double a && r instanceof Double b) {
+                    return a + b;
+                }
+
+                if (l instanceof String a && r instanceof String b) {
+                    return a.concat(b);
+                }
+
+                // Allows "scone" + 4 = "scone4"
+                if (l instanceof String || r instanceof String) {
+                    return stringify(l) + stringify(r);
+                }
+
+                throw new RuntimeError(operator, "Operands must be two numbers or two strings.");
+            };
+            case SLASH -> environment -> {
+                final Object l = left.evaluate(environment);
+                final Object r = right.evaluate(environment);
+                checkNumberOperands(operator, l, r);
+                final Double result = (double) l / (double) r;
+                if (result.isNaN()) throw new RuntimeError(operator, "0/0 is not not allowed.");
+                return result;
+            };
+            case STAR -> environment -> {
+                final Object l = left.evaluate(environment);
+                final Object r = right.evaluate(environment);
+                checkNumberOperands(operator, l, r);
+                return (double) l * (double) r;
+            };
+            case BANG_EQUAL -> environment -> {
+                final Object l = left.evaluate(environment);
+                return !isEqual(l, right.evaluate(environment));
+            };
+            case EQUAL_EQUAL -> environment -> {
+                final Object l = left.evaluate(environment);
+                return isEqual(l, right.evaluate(environment));
+            };
+            default -> environment -> {
+                left.evaluate(environment);
+                right.evaluate(environment);
+                return null;
+            };
+        };
+    }
+
+    @Override
+    public Evaluator visitArrayExpr(Expr.Array expr) {
+        final Evaluator[] elements = new Evaluator[expr.elements.size()];
+        for (int i = 0; i < elements.length; i++) {
+            elements[i] = compile(expr.elements.get(i));
+        }
+        return environment -> new LoxArray(Arrays.asList(evaluateArguments(elements, environment)));
+    }
+
+    @Override
+    public Evaluator visitCallExpr(Expr.Call expr) {
+        final Evaluator[] arguments = new Evaluator[expr.arguments.size()];
+        for (int i = 0; i < arguments.length; i++) {
+            arguments[i] = compile(expr.arguments.get(i));
+        }
+        final Token paren = expr.paren;
+
+        if (expr.callee instanceof Expr.Get get) return invoke(get, arguments, paren);
+
+        final Evaluator callee = compile(expr.callee);
+        return environment -> {
+            final Object function = callee.evaluate(environment);
+            return call(function, evaluateArguments(arguments, environment), paren);
+        };
+    }
+
+    // obj.method(args) runs the method with `obj` as `this` straight away, without binding first
+    private Evaluator invoke(final Expr.Get get, final Evaluator[] arguments, final Token paren) {
+        final Evaluator object = compile(get.object);
+        final Token name = get.name;
+
+        return environment -> {
+            if (!(object.evaluate(environment) instanceof CompiledInstance instance)) {
+                return call(null, evaluateArguments(arguments, environment), paren);
+            }
+
+            final CompiledFunction method = instance.method(name);
+            if (method == null) {
+                return call(instance.get(name), evaluateArguments(arguments, environment), paren);
+            }
+
+            final Object[] args = evaluateArguments(arguments, environment);
+            checkArity(method, args, paren);
+            return method.invoke(instance, args);
+        };
+    }
+
+    private static Object[] evaluateArguments(final Evaluator[] arguments, final Environment environment) {
+        final Object[] args = new Object[arguments.length];
+        for (int i = 0; i < args.length; i++) {
+            args[i] = arguments[i].evaluate(environment);
+        }
+        return args;
+    }
+
+    private static Object call(final Object function, final Object[] args, final Token paren) {
+        if (!(function instanceof LoxCallable callable)) {
+            throw new RuntimeError(paren, "Can only call functions and classes");
+        }
+
+        checkArity(callable, args, paren);
+
+        if (callable instanceof CompiledFunction compiledFunction) return compiledFunction.invoke(args);
+        if (callable instanceof CompiledClass compiledClass) return compiledClass.instantiate(args);
+
+        // Natives don't need the tree-walker
+        return callable.call(null, Arrays.asList(args));
+    }
+
+    private static void checkArity(final LoxCallable callable, final Object[] args, final Token paren) {
+        if (args.length != callable.arity()) {
+            throw new RuntimeError(
+                    paren,
+                    "Expected %d arguments but got %d.".formatted(callable.arity(), args.length)
+            );
+        }
+    }
+
+    @Override
+    public Evaluator visitCompoundAssignExpr(Expr.CompoundAssign expr) {
+        final Evaluator value = compile(expr.value);
+        final BinaryOperator<Object> operation = arithmetic(expr.operator);
+        final Token name = expr.name;
+        final int depth = expr.depth;
+        final int slot = expr.slot;
+
+        if (depth < 0) {
+            return environment -> {
+                final Object result = operation.apply(globals.get(name), value.evaluate(environment));
+                globals.assign(name, result);
+                return result;
+            };
+        }
+
+        return environment -> {
+            final Environment scope = environment.ancestor(depth);
+            final Object result = operation.apply(scope.valueAt(slot), value.evaluate(environment));
+            scope.assignAt(0, slot, result);
+            return result;
+        };
+    }
+
+    @Override
+    public Evaluator visitCompoundSetExpr(Expr.CompoundSet expr) {
+        final Evaluator object = compile(expr.object);
+        final Evaluator value = compile(expr.value);
+        final BinaryOperator<Object> operation = arithmetic(expr.operator);
+        final Token name = expr.name;
+
+        return environment -> {
+            if (!(object.evaluate(environment) instanceof CompiledInstance instance)) {
+                throw new RuntimeError(name, "Only instances have fields.");
+            }
+
+            final Object result = operation.apply(instance.get(name), value.evaluate(environment));
+            instance.set(name, result);
+            return result;
+        };
+    }
+
+    // What `+=`, `-=`, `*=` and `/=` do with the old and the new value, same as the binary operators above
+    private static BinaryOperator<Object> arithmetic(final Token operator) {
+        return switch (operator.type()) {
+            case PLUS -> (l, r) -> {
+                if (l instanceof Double a && r instanceof Double b) {
+                    return a + b;
+                }
+
+                if (l instanceof String a && r instanceof String b) {
+                    return a.concat(b);
+                }
+
+                if (l instanceof String || r instanceof String) {
+                    return stringify(l) + stringify(r);
+                }
+
+                throw new RuntimeError(operator, "Operands must be two numbers or two strings.");
+            };
+            case MINUS -> (l, r) -> {
+                checkNumberOperands(operator, l, r);
+                return (double) l - (double) r;
+            };
+            case STAR -> (l, r) -> {
+                checkNumberOperands(operator, l, r);
+                return (double) l * (double) r;
+            };
+            case SLASH -> (l, r) -> {
+                checkNumberOperands(operator, l, r);
+                final Double result = (double) l / (double) r;
+                if (result.isNaN()) throw new RuntimeError(operator, "0/0 is not not allowed.");
+                return result;
+            };
+            default -> throw new IllegalStateException("Not a compound assignment operator: " + operator);
+        };
+    }
+
+    @Override
+    public Evaluator visitGetExpr(Expr.Get expr) {
+        final Evaluator object = compile(expr.object);
+        final Token name = expr.name;
+        return environment -> {
+            if (object.evaluate(environment) instanceof CompiledInstance instance) {
+                return instance.get(name);
+            }
+            return null;
+        };
+    }
+
+    @Override
+    public Evaluator visitGroupingExpr(Expr.Grouping expr) {
+        return compile(expr.expression);
+    }
+
+    @Override
+    public Evaluator visitIndexExpr(Expr.Index expr) {
+        final Evaluator object = compile(expr.object);
+        final Evaluator index = compile(expr.index);
+        final Token bracket = expr.bracket;
+
+        return environment -> {
+            final Object target = object.evaluate(environment);
+            if (target instanceof LoxMap map) return map.get(bracket, index.evaluate(environment));
+
+            final LoxArray array = array(target, bracket);
+            return array.get(array.index(bracket, index.evaluate(environment)));
+        };
+    }
+
+    @Override
+    public Evaluator visitIndexSetExpr(Expr.IndexSet expr) {
+        final Evaluator object = compile(expr.object);
+        final Evaluator index = compile(expr.index);
+        final Evaluator value = compile(expr.value);
+        final Token bracket = expr.bracket;
+
+        return environment -> {
+            final Object target = object.evaluate(environment);
+            if (target instanceof LoxMap map) {
+                final Object key = index.evaluate(environment);
+                final Object result = value.evaluate(environment);
+                map.put(bracket, key, result);
+                return result;
+            }
+
+            // The value can change the array, so the index is only checked after it
+            final LoxArray array = array(target, bracket);
+            final Object key = index.evaluate(environment);
+            final Object result = value.evaluate(environment);
+            array.set(array.index(bracket, key), result);
+            return result;
+        };
+    }
+
+    private static LoxArray array(final Object object, final Token bracket) {
+        if (object instanceof LoxArray array) return array;
+        throw new RuntimeError(bracket, "Only arrays and maps can be indexed.");
+    }
+
+    @Override
+    public Evaluator visitIncrementExpr(Expr.Increment expr) {
+        final Token name = expr.name;
+        final Token operator = expr.operator;
+        final double delta = operator.type() == TokenType.PLUS_PLUS ? 1 : -1;
+        final boolean prefix = expr.prefix;
+        final int depth = expr.depth;
+        final int slot = expr.slot;
+
+        if (depth < 0) {
+            return environment -> {
+                final double old = number(operator, globals.get(name));
+                final Object updated = old + delta;
+                globals.assign(name, updated);
+                return prefix ? updated : old;
+            };
+        }
+
+        return environment -> {
+            final Environment scope = environment.ancestor(depth);
+            final double old = number(operator, scope.valueAt(slot));
+            final Object updated = old + delta;
+            scope.assignAt(0, slot, updated);
+            return prefix ? updated : old;
+        };
+    }
+
+    @Override
+    public Evaluator visitIncrementSetExpr(Expr.IncrementSet expr) {
+        final Evaluator object = compile(expr.object);
+        final Token name = expr.name;
+        final Token operator = expr.operator;
+        final double delta = operator.type() == TokenType.PLUS_PLUS ? 1 : -1;
+        final boolean prefix = expr.prefix;
+
+        return environment -> {
+            if (!(object.evaluate(environment) instanceof CompiledInstance instance)) {
+                throw new RuntimeError(name, "Only instances have fields.");
+            }
+
+            final double old = number(operator, instance.get(name));
+            final Object updated = old + delta;
+            instance.set(name, updated);
+            return prefix ? updated : old;
+        };
+    }
+
+    private static double number(final Token operator, final Object value) {
+        if (!(value instanceof Double number)) {
+            throw new RuntimeError(operator, "Operand must be a number.");
+        }
+        return number;
+    }
+
+    @Override
+    public Evaluator visitLiteralExpr(Expr.Literal expr) {
+        final Object value = expr.value;
+        return environment -> value;
+    }
+
+    @Override
+    public Evaluator visitLogicalExpr(Expr.Logical expr) {
+        final Evaluator left = compile(expr.left);
+        final Evaluator right = compile(expr.right);
+
+        return switch (expr.operator.type()) {
+            case OR -> environment -> {
+                final Object l = left.evaluate(environment);
+                if (isTruthy(l)) return l;
+                return right.evaluate(environment);
+            };
+            default -> environment -> {
+                final Object l = left.evaluate(environment);
+                if (!isTruthy(l)) return l;
+                return right.evaluate(environment);
+            };
+        };
+    }
+
+    @Override
+    public Evaluator visitSetExpr(Expr.Set expr) {
+        final Evaluator object = compile(expr.object);
+        final Evaluator value = compile(expr.value);
+        final Token name = expr.name;
+
+        return environment -> {
+            if (!(object.evaluate(environment) instanceof CompiledInstance instance)) {
+                throw new RuntimeError(name, "Only instances have fields.");
+            }
+
+            final Object result = value.evaluate(environment);
+            instance.set(name, result);
+            return result;
+        };
+    }
+
+    @Override
+    public Evaluator visitSuperExpr(Expr.Super expr) {
+        final int depth = expr.depth;
+        final int slot = expr.slot;
+        final Token method = expr.method;
+
+        return environment -> {
+            final CompiledClass superClass = (CompiledClass) environment.getAt(depth, slot);
+
+            // `this` is always slot 0 of the method scope right inside `super`'s
+            final CompiledInstance instance = (CompiledInstance) environment.getAt(depth - 1, 0);
+            final CompiledFunction function = superClass.findMethod(method.lexeme());
+
+            if (function == null) {
+                throw new RuntimeError(method, "Undefined property '%s'.".formatted(method.lexeme()));
+            }
+
+            return function.bind(instance);
+        };
+    }
+
+    @Override
+    public Evaluator visitThisExpr(Expr.This expr) {
+        return variable(expr.keyword, expr.depth, expr.slot);
+    }
+
+    @Override
+    public Evaluator visitUnaryExpr(Expr.Unary expr) {
+        final Evaluator right = compile(expr.right);
+        final Token operator = expr.operator;
+
+        return switch (operator.type()) {
+            case BANG -> environment -> !isTruthy(right.evaluate(environment));
+            case MINUS -> environment -> {
+                final Object value = right.evaluate(environment);
+                if (!(value instanceof Double number)) {
+                    throw new RuntimeError(operator, "Operand must be a number.");
+                }
+                return -number;
+            };
+            default -> environment -> {
+                right.evaluate(environment);
+                return null;
+            };
+        };
+    }
+
+    @Override
+    public Evaluator visitVariableExpr(Expr.Variable expr) {
+        return variable(expr.name, expr.depth, expr.slot);
+    }
+
+    private Evaluator variable(final Token name, final int depth, final int slot) {
+        if (depth < 0) return environment -> globals.get(name);
+        if (depth == 0) return environment -> environment.getAt(0, slot);
+        return environment -> environment.getAt(depth, slot);
+    }
+
+    // Once the JIT inlines a whole loop body, double `%` ends up as a surprisingly slow runtime call.
+    // Loop counters and the like are whole numbers, so those take the integer remainder instead.
+    private static double remainder(final double left, final double right) {
+        final long l = (long) left;
+        final long r = (long) right;
+        if (l == left && r == right && r != 0 && Math.abs(l) < MAX_EXACT_INTEGER && Math.abs(r) < MAX_EXACT_INTEGER) {
+            // Like fmod, the result keeps the sign of the dividend, even when it is zero
+            return Math.copySign((double) (l % r), left);
+        }
+        return left % right;
+    }
+
+    private static void checkNumberOperands(final Token operator, final Object left, final Object right) {
+        if (left instanceof Double && right instanceof Double) return;
+        throw new RuntimeError(operator, "Operands must be numbers.");
+    }
+}
@@ -0,0 +1,58 @@
+package com.craftinginterpreters.lox.compiler;
+
+import com.craftinginterpreters.lox.callables.LoxCallable;
+import com.craftinginterpreters.lox.visitors.Interpreter;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class CompiledClass implements LoxCallable {
+
+    private final String name;
+    // Same as LoxClass: inherited methods are copied down, so a lookup is a single probe
+    private final Map<String, CompiledFunction> methods;
+    private final CompiledFunction initializer;
+    private final int arity;
+
+    public CompiledClass(final String name, final CompiledClass superClass, final Map<String, CompiledFunction> methods) {
+        this.name = name;
+
+        final Map<String, CompiledFunction> flattened = new HashMap<>();
+        if (superClass != null) flattened.putAll(superClass.methods);
+        flattened.putAll(methods);
+        this.methods = Map.copyOf(flattened);
+
+        this.initializer = this.methods.get("init");
+        this.arity = initializer == null ? 0 : initializer.arity();
+    }
+
+    @Override
+    public String toString() {
+        return "<Class#%s>".formatted(name);
+    }
+
+    @Override
+    public int arity() {
+        return arity;
+    }
+
+    @Override
+    public Object call(final Interpreter interpreter, final List<Object> arguments) {
+        return instantiate(arguments.toArray());
+    }
+
+    public CompiledInstance instantiate(final Object[] arguments) {
+        final CompiledInstance instance = new CompiledInstance(this);
+
+        if (initializer != null) {
+            initializer.invoke(instance, arguments);
+        }
+
+        return instance;
+    }
+
+    public CompiledFunction findMethod(final String name) {
+        return methods.get(name);
+    }
+}
@@ -0,0 +1,80 @@
+package com.craftinginterpreters.lox.compiler;
+
+import com.craftinginterpreters.lox.Environment;
+import com.craftinginterpreters.lox.callables.LoxCallable;
+import com.craftinginterpreters.lox.flows.Completion;
+import com.craftinginterpreters.lox.visitors.Interpreter;
+
+import java.util.List;
+
+public class CompiledFunction implements LoxCallable {
+
+    // The body is compiled once per declaration and shared by every closure created from it.
+    // Methods have `this` in front of their parameters, `locals` counts it.
+    // `engine` is the compiler that produced it, which holds the value of a completed `return`.
+    public record Template(String name, int arity, boolean isMethod, int locals, Executor[] body, ClosureCompiler engine) { }
+
+    private final Template template;
+    private final Environment closure;
+    private final boolean isInitializer;
+    // Only set for methods taken as values
+    private final CompiledInstance receiver;
+
+    public CompiledFunction(final Template template, final Environment closure, final boolean isInitializer) {
+        this(template, closure, isInitializer, null);
+    }
+
+    private CompiledFunction(final Template template,
+                             final Environment closure,
+                             final boolean isInitializer,
+                             final CompiledInstance receiver) {
+        this.template = template;
+        this.closure = closure;
+        this.isInitializer = isInitializer;
+        this.receiver = receiver;
+    }
+
+    @Override
+    public int arity() {
+        return template.arity();
+    }
+
+    @Override
+    public Object call(final Interpreter interpreter, final List<Object> arguments) {
+        return invoke(arguments.toArray());
+    }
+
+    public Object invoke(final Object[] arguments) {
+        return invoke(receiver, arguments);
+    }
+
+    // Method calls come here directly with their receiver, without binding first
+    public Object invoke(final CompiledInstance receiver, final Object[] arguments) {
+        final Environment environment = new Environment(closure, template.locals());
+        if (template.isMethod()) environment.define("this", receiver);
+        for (final Object argument : arguments) {
+            environment.define(null, argument);
+        }
+
+        Completion completion = Completion.NORMAL;
+        for (final Executor statement : template.body()) {
+            completion = statement.execute(environment);
+            if (completion != Completion.NORMAL) break;
+        }
+
+        if (isInitializer) return receiver;
+        if (completion == Completion.RETURN) return template.engine().takeReturnValue();
+
+        // If there's no explicit return, then return `nil`
+        return null;
+    }
+
+    public CompiledFunction bind(final CompiledInstance instance) {
+        return new CompiledFunction(template, closure, isInitializer, instance);
+    }
+
+    @Override
+    public String toString() {
+        return "<fn %s>".formatted(template.name());
+    }
+}
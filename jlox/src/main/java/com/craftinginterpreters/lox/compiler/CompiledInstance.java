@@ -0,0 +1,48 @@
+package com.craftinginterpreters.lox.compiler;
+
+import com.craftinginterpreters.lox.common.errors.RuntimeError;
+import com.craftinginterpreters.lox.common.token.Token;
+
+import java.util.HashMap;
+import java.util.Map;
+
+public class CompiledInstance {
+
+    private final CompiledClass klass;
+    private final Map<String, Object> fields = new HashMap<>();
+
+    public CompiledInstance(final CompiledClass klass) {
+        this.klass = klass;
+    }
+
+    @Override
+    public String toString() {
+        return "<Instance#%s>".formatted(klass.toString());
+    }
+
+    public Object get(final Token name) {
+        final Object value = fields.get(name.lexeme());
+        if (value != null || fields.containsKey(name.lexeme())) {
+            return value;
+        }
+
+        final CompiledFunction method = klass.findMethod(name.lexeme());
+        if (method != null) return method.bind(this);
+
+        throw new RuntimeError(name, "Undefined property '%s'.".formatted(name.lexeme()));
+    }
+
+    // For `obj.name(args)`: the method to invoke directly, or null when a field shadows it
+    public CompiledFunction method(final Token name) {
+        if (fields.containsKey(name.lexeme())) return null;
+
+        final CompiledFunction method = klass.findMethod(name.lexeme());
+        if (method != null) return method;
+
+        throw new RuntimeError(name, "Undefined property '%s'.".formatted(name.lexeme()));
+    }
+
+    public void set(final Token name, final Object value) {
+        fields.put(name.lexeme(), value);
+    }
+}
@@ -0,0 +1,9 @@
+package com.craftinginterpreters.lox.compiler;
+
+import com.craftinginterpreters.lox.Environment;
+
+@FunctionalInterface
+public interface Evaluator {
+
+    Object evaluate(Environment environment);
+}
@@ -0,0 +1,10 @@
+package com.craftinginterpreters.lox.compiler;
+
+import com.craftinginterpreters.lox.Environment;
+import com.craftinginterpreters.lox.flows.Completion;
+
+@FunctionalInterface
+public interface Executor {
+
+    Completion execute(Environment environment);
+}
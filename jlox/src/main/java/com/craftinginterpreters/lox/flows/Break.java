@@ -1,8 +0,0 @@
-package com.craftinginterpreters.lox.flows;
-
-public class Break extends RuntimeException {
-
-    public Break() {
-        super(null, null, false, false);
-    }
-}
@@ -0,0 +1,10 @@
+package com.craftinginterpreters.lox.flows;
+
+// How a statement finished. Anything but NORMAL unwinds to the enclosing loop or function.
+// The value of a `return` is handed over separately by the engine, so none of these allocate.
+public enum Completion {
+    NORMAL,
+    RETURN,
+    BREAK,
+    CONTINUE
+}
@@ -4,6 +4,8 @@ import com.craftinginterpreters.lox.ast.Expr;
 import com.craftinginterpreters.lox.ast.Stmt;
 import com.craftinginterpreters.lox.common.ProblemReporter;
 import com.craftinginterpreters.lox.common.token.Token;
+import com.craftinginterpreters.lox.common.token.TokenCursor;
+import com.craftinginterpreters.lox.common.token.TokenSource;
 import com.craftinginterpreters.lox.common.token.TokenType;
 
 import java.nio.file.Files;
@@ -20,10 +22,18 @@ public class Parser {
     private static class ParseError extends RuntimeException { }
 
     private final ProblemReporter reporter;
-    private final List<Token> tokens;
-    private int current = 0;
+    // The grammar never looks more than one token either way, so that window is all the cursor has to give
+    private final TokenCursor tokens;
 
     public Parser(final List<Token> tokens, final ProblemReporter reporter) {
+        this(TokenSource.of(tokens), reporter);
+    }
+
+    public Parser(final TokenSource tokens, final ProblemReporter reporter) {
+        this(TokenCursor.over(tokens), reporter);
+    }
+
+    public Parser(final TokenCursor tokens, final ProblemReporter reporter) {
         this.tokens = tokens;
         this.reporter = reporter;
     }
@@ -39,16 +49,23 @@ public class Parser {
     }
 
     private Stmt statement() {
-        if (match(FOR)) return forStatement();
-        if (match(IF)) return ifStatement();
-        if (match(PRINT)) return printStatement();
-        if (match(RETURN)) return returnStatement();
-        if (match(WHILE)) return whileStatement();
-        if (match(BREAK)) return breakStatement();
-        if (match(CONTINUE)) return continueStatement();
-        if (match(LEFT_BRACE)) return new Stmt.Block(block());
+        final int line = tokens.line();
+        if (match(FOR)) return forStatement(line);
+        if (match(IF)) return at(line, ifStatement());
+        if (match(PRINT)) return at(line, printStatement());
+        if (match(RETURN)) return at(line, returnStatement());
+        if (match(WHILE)) return at(line, whileStatement());
+        if (match(BREAK)) return at(line, breakStatement());
+        if (match(CONTINUE)) return at(line, continueStatement());
+        if (match(LEFT_BRACE)) return at(line, new Stmt.Block(block()));
 
-        return expressionStatement();
+        return at(line, expressionStatement());
+    }
+
+    // Records the line a statement starts on
+    private static <T extends Stmt> T at(final int line, final T statement) {
+        statement.line = line;
+        return statement;
     }
 
     private Stmt continueStatement() {
@@ -75,16 +92,17 @@ public class Parser {
         return new Stmt.Return(keyword, value);
     }
 
-    private Stmt forStatement() {
+    // The statements `for` turns into all get its line
+    private Stmt forStatement(final int line) {
         consume(LEFT_PAREN, "Expect '(' after 'for'.");
 
         Stmt initializer;
         if (match(SEMICOLON)) {
             initializer = null;
         } else if (match(VAR)) {
-            initializer = varDeclaration();
+            initializer = at(line, varDeclaration());
         } else {
-            initializer = expressionStatement();
+            initializer = at(line, expressionStatement());
         }
 
         Expr condition = null;
@@ -103,24 +121,24 @@ public class Parser {
 
         // Execute increment after executing body once.
         if (increment != null) {
-            body = new Stmt.Block(
+            body = at(line, new Stmt.Block(
                     Arrays.asList(
                             body,
-                            new Stmt.Expression(increment)
+                            at(line, new Stmt.Expression(increment))
                     )
-            );
+            ));
         }
 
         if (condition == null) condition = new Expr.Literal(true);
-        body = new Stmt.While(condition, body);
+        body = at(line, new Stmt.While(condition, body));
 
         // Implementing `for` as `while`
         if (initializer != null) {
-            body = new Stmt.Block(
+            body = at(line, new Stmt.Block(
                     Arrays.asList(
                             initializer,
                             body
-            ));
+            )));
         }
 
         return body;
@@ -174,21 +192,31 @@ public class Parser {
 
         if (match(EQUAL, MINUS_EQUAL, PLUS_EQUAL, STAR_EQUAL, SLASH_EQUAL)) {
             Token operator = previous();
-            Expr value = switch (operator.type()) {
-                case MINUS_EQUAL -> new Expr.Binary(expr, operator.withType(MINUS), assignment());
-                case PLUS_EQUAL -> new Expr.Binary(expr, operator.withType(PLUS), assignment());
-                case STAR_EQUAL -> new Expr.Binary(expr, operator.withType(STAR), assignment());
-                case SLASH_EQUAL -> new  Expr.Binary(expr, operator.withType(SLASH), assignment());
-                case EQUAL -> assignment();
-                // Realistically this is not possible unless we change the top level match condition
-                default -> throw new IllegalStateException("Unexpected value: " + operator.type());
-            };
-
-            if (expr instanceof Expr.Variable) {
+            Expr value = assignment();
+
+            if (operator.type() != EQUAL) {
+                // The target is read and written once, instead of desugaring to `a = a + x`
+                final Token arithmetic = operator.withType(switch (operator.type()) {
+                    case MINUS_EQUAL -> MINUS;
+                    case PLUS_EQUAL -> PLUS;
+                    case STAR_EQUAL -> STAR;
+                    case SLASH_EQUAL -> SLASH;
+                    // Realistically this is not possible unless we change the top level match condition
+                    default -> throw new IllegalStateException("Unexpected value: " + operator.type());
+                });
+
+                if (expr instanceof Expr.Variable variable) {
+                    return new Expr.CompoundAssign(variable.name, arithmetic, value);
+                } else if (expr instanceof Expr.Get getterExpr) {
+                    return new Expr.CompoundSet(getterExpr.object, getterExpr.name, arithmetic, value);
+                }
+            } else if (expr instanceof Expr.Variable) {
                 Token name = ((Expr.Variable) expr).name;
                 return new Expr.Assign(name, value);
             } else if (expr instanceof Expr.Get getterExpr) {
                 return new Expr.Set(getterExpr.object, getterExpr.name, value);
+            } else if (expr instanceof Expr.Index index) {
+                return new Expr.IndexSet(index.object, index.bracket, index.index, value);
             }
 
             error(operator, "Invalid assignment target");
@@ -219,10 +247,11 @@ public class Parser {
     }
 
     private Stmt declaration() {
+        final int line = tokens.line();
         try {
-            if (match(CLASS)) return classDeclaration();
+            if (match(CLASS)) return at(line, classDeclaration());
             if (match(FUN)) return function("function");
-            if (match(VAR)) return varDeclaration();
+            if (match(VAR)) return at(line, varDeclaration());
             return statement();
         } catch (final ParseError error) {
             synchronize();
@@ -231,7 +260,7 @@ public class Parser {
     }
 
     private Stmt classDeclaration() {
-        final Token name = consume(IDENTIFIER, "Expect class name.");
+        final Token name = consumeToken(IDENTIFIER, "Expect class name.");
 
         Expr.Variable superClass = null;
         if (match(LESS)) {
@@ -258,7 +287,7 @@ public class Parser {
     }
 
     private Stmt.Function function(String kind) {
-        Token name = consume(IDENTIFIER, "Expect %s name.".formatted(kind));
+        Token name = consumeToken(IDENTIFIER, "Expect %s name.".formatted(kind));
 
         consume(LEFT_PAREN, "Expect '(' after %s name.".formatted(kind));
         List<Token> params = new ArrayList<>();
@@ -267,7 +296,7 @@ public class Parser {
                 if (params.size() >= FN_MAX_ARG_COUNT) {
                     error(peek(), "Cant' have more than %d parameters.".formatted(FN_MAX_ARG_COUNT));
                 }
-                params.add(consume(IDENTIFIER, "Expect parameter name."));
+                params.add(consumeToken(IDENTIFIER, "Expect parameter name."));
             } while (match(COMMA));
         }
         consume(RIGHT_PAREN, "Expect ')' after parameters.");
@@ -276,7 +305,7 @@ public class Parser {
 
         List<Stmt> body = block();
 
-        return new Stmt.Function(name, params, body);
+        return at(name.line(), new Stmt.Function(name, params, body));
     }
 
     private Stmt printStatement() {
@@ -286,7 +315,7 @@ public class Parser {
     }
 
     private Stmt varDeclaration() {
-        final Token name = consume(IDENTIFIER, "Expect variable name.");
+        final Token name = consumeToken(IDENTIFIER, "Expect variable name.");
 
         // Kotlin excels in places like these!
         Expr initializer = null;
@@ -347,7 +376,31 @@ public class Parser {
             Expr right = unary();
             return new Expr.Unary(operator, right);
         }
-        return call();
+        if (match(PLUS_PLUS, MINUS_MINUS)) {
+            Token operator = previous();
+            return increment(unary(), operator, true);
+        }
+        return postfix();
+    }
+
+    private Expr postfix() {
+        Expr expr = call();
+
+        if (match(PLUS_PLUS, MINUS_MINUS)) {
+            return increment(expr, previous(), false);
+        }
+        return expr;
+    }
+
+    private Expr increment(final Expr target, final Token operator, final boolean prefix) {
+        if (target instanceof Expr.Variable variable) {
+            return new Expr.Increment(variable.name, operator, prefix);
+        } else if (target instanceof Expr.Get getterExpr) {
+            return new Expr.IncrementSet(getterExpr.object, getterExpr.name, operator, prefix);
+        }
+
+        error(operator, "Invalid increment target");
+        return target;
     }
 
     private Expr call() {
@@ -357,8 +410,12 @@ public class Parser {
             if (match(LEFT_PAREN)) {
                 expr = finishCall(expr);
             } else if (match(DOT)) {
-                Token name = consume(IDENTIFIER, "Expect property name after '.'.");
+                Token name = consumeToken(IDENTIFIER, "Expect property name after '.'.");
                 expr = new Expr.Get(expr, name);
+            } else if (match(LEFT_BRACKET)) {
+                Expr index = expression();
+                Token bracket = consumeToken(RIGHT_BRACKET, "Expect ']' after index.");
+                expr = new Expr.Index(expr, bracket, index);
             } else {
                 break;
             }
@@ -379,7 +436,7 @@ public class Parser {
             } while (match(COMMA));
         }
 
-        final Token paren = consume(RIGHT_PAREN, "Expect ')' after arguments.");
+        final Token paren = consumeToken(RIGHT_PAREN, "Expect ')' after arguments.");
         return new Expr.Call(callee, paren, args);
     }
 
@@ -388,12 +445,12 @@ public class Parser {
         if (match(TRUE))    return new Expr.Literal(true);
         if (match(NIL))     return new Expr.Literal(null);
 
-        if (match(NUMBER, STRING)) return new Expr.Literal(previous().literal());
+        if (match(NUMBER, STRING)) return new Expr.Literal(tokens.previousLiteral());
 
         if (match(SUPER)) {
             Token keyword = previous();
             consume(DOT, "Expect '.' after 'super'.");
-            Token method = consume(IDENTIFIER, "Expect superclass method name.");
+            Token method = consumeToken(IDENTIFIER, "Expect superclass method name.");
             return new Expr.Super(keyword, method);
         }
 
@@ -407,13 +464,32 @@ public class Parser {
             return new Expr.Grouping(expr);
         }
 
-        throw error(peek(), "Expected an expression. Found %s".formatted(peek().type()));
+        if (match(LEFT_BRACKET)) return array();
+
+        throw error(peek(), "Expected an expression. Found %s".formatted(tokens.type()));
+    }
+
+    private Expr array() {
+        final List<Expr> elements = new ArrayList<>();
+
+        if (!check(RIGHT_BRACKET)) {
+            do {
+                elements.add(expression());
+            } while (match(COMMA));
+        }
+
+        final Token bracket = consumeToken(RIGHT_BRACKET, "Expect ']' after array elements.");
+        return new Expr.Array(bracket, elements);
     }
 
-    private Token consume(final TokenType type, final String message) {
-        if (check(type)) return advance();
+    private void consume(final TokenType type, final String message) {
+        if (!check(type)) throw error(peek(), message);
+        advance();
+    }
 
-        throw error(peek(), message);
+    private Token consumeToken(final TokenType type, final String message) {
+        consume(type, message);
+        return previous();
     }
 
     private ParseError error(final Token token, final String message) {
@@ -425,9 +501,9 @@ public class Parser {
         advance();
 
         while (!isAtEnd()) {
-            if (previous().type().equals(SEMICOLON)) return;
+            if (tokens.previousType() == SEMICOLON) return;
 
-            switch (peek().type()) {
+            switch (tokens.type()) {
                 case CLASS:
                 case FOR:
                 case FUN:
@@ -454,23 +530,22 @@ public class Parser {
 
     private boolean check(final TokenType type) {
         if (isAtEnd()) return false;
-        return peek().type().equals(type);
+        return tokens.type() == type;
     }
 
-    private Token advance() {
-        if (!isAtEnd()) current++;
-        return previous();
+    private void advance() {
+        tokens.advance();
     }
 
     private boolean isAtEnd() {
-        return peek().type().equals(EOF);
+        return tokens.type() == EOF;
     }
 
     private Token peek() {
-        return tokens.get(current);
+        return tokens.current();
     }
 
     private Token previous() {
-        return tokens.get(current - 1);
+        return tokens.previous();
     }
 }
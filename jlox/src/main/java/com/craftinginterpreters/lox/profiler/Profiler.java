@@ -0,0 +1,186 @@
+package com.craftinginterpreters.lox.profiler;
+
+import com.craftinginterpreters.lox.ast.Stmt;
+
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Instrumenting profiler for the tree-walker. The Interpreter tells it about every statement it runs
+// and every Lox function it enters and leaves; without a profiler that costs it a null check at each.
+// Times are wall clock. A function's total time only counts its outermost call, so recursion isn't
+// counted twice; self time leaves out the Lox functions it called.
+public class Profiler {
+
+    private static final class Script {
+        final String name;
+        final Node root;
+        long[] hits = new long[64];
+
+        Script(final String name) {
+            this.name = name;
+            this.root = new Node(name);
+        }
+
+        void hit(final int line) {
+            if (line >= hits.length) hits = Arrays.copyOf(hits, Math.max(line + 1, hits.length * 2));
+            hits[line]++;
+        }
+    }
+
+    // Stats for one function declaration
+    private static final class Function {
+        final String label;
+        final Script script;
+        long calls;
+        long total;
+        long self;
+        // Activations on the stack right now, so recursive calls don't add to `total` again
+        int active;
+
+        Function(final String name, final Script script, final int line) {
+            this.label = "%s (%s:%d)".formatted(name, script.name, line);
+            this.script = script;
+        }
+    }
+
+    // One path through the call tree, for the collapsed stacks
+    private static final class Node {
+        final String label;
+        final Map<Function, Node> children = new LinkedHashMap<>();
+        long self;
+
+        Node(final String label) {
+            this.label = label;
+        }
+
+        Node child(final Function function) {
+            return children.computeIfAbsent(function, f -> new Node(f.label));
+        }
+    }
+
+    // A running function, or a script's top-level code when `function` is null
+    private static final class Frame {
+        final Frame parent;
+        final Function function;
+        final Node node;
+        final Script script;
+        final long start = System.nanoTime();
+        // Time spent in the Lox functions it called
+        long children;
+
+        Frame(final Frame parent, final Function function, final Node node, final Script script) {
+            this.parent = parent;
+            this.function = function;
+            this.node = node;
+            this.script = script;
+        }
+    }
+
+    private final Map<String, Script> scripts = new LinkedHashMap<>();
+    private final Map<Stmt.Function, Function> functions = new IdentityHashMap<>();
+    private Frame top;
+
+    public void startScript(final String name) {
+        final Script script = scripts.computeIfAbsent(name, Script::new);
+        top = new Frame(top, null, script.root, script);
+    }
+
+    public void endScript() {
+        top.node.self += System.nanoTime() - top.start - top.children;
+        top = top.parent;
+    }
+
+    // Functions belong to the script they are declared in, wherever they are called from
+    public void declare(final Stmt.Function declaration) {
+        function(declaration, declaration.name.lexeme());
+    }
+
+    public void declare(final Stmt.Class declaration) {
+        for (final Stmt.Function method : declaration.methods) {
+            function(method, declaration.name.lexeme() + "." + method.name.lexeme());
+        }
+    }
+
+    private Function function(final Stmt.Function declaration, final String name) {
+        return functions.computeIfAbsent(declaration, d -> new Function(name, top.script, d.line));
+    }
+
+    public void enter(final Stmt.Function declaration) {
+        final Function function = function(declaration, declaration.name.lexeme());
+        function.calls++;
+        function.active++;
+        top = new Frame(top, function, top.node.child(function), function.script);
+    }
+
+    public void exit() {
+        final Frame frame = top;
+        final long elapsed = System.nanoTime() - frame.start;
+        final long self = elapsed - frame.children;
+        frame.function.self += self;
+        frame.node.self += self;
+        if (--frame.function.active == 0) frame.function.total += elapsed;
+
+        top = frame.parent;
+        top.children += elapsed;
+    }
+
+    // Blocks only group other statements, so they don't count towards their line
+    public void hit(final Stmt statement) {
+        if (statement instanceof Stmt.Block) return;
+        top.script.hit(statement.line);
+    }
+
+    // Functions by self time, then lines by hits
+    public void printTable(final PrintStream out) {
+        final List<Function> byTime = new ArrayList<>(functions.values());
+        byTime.removeIf(function -> function.calls == 0);
+        byTime.sort(Comparator.comparingLong((Function function) -> function.self).reversed());
+
+        out.println("[profile] functions by self time");
+        out.printf("%12s %12s %12s  %s%n", "calls", "total ms", "self ms", "function");
+        for (final Function function : byTime) {
+            out.printf("%12d %12.2f %12.2f  %s%n", function.calls, millis(function.total), millis(function.self), function.label);
+        }
+
+        record Line(String script, int line, long hits) {
+        }
+        final List<Line> byHits = new ArrayList<>();
+        for (final Script script : scripts.values()) {
+            for (int line = 0; line < script.hits.length; line++) {
+                if (script.hits[line] > 0) byHits.add(new Line(script.name, line, script.hits[line]));
+            }
+        }
+        byHits.sort(Comparator.comparingLong(Line::hits).reversed());
+
+        out.println("[profile] lines by hits");
+        out.printf("%12s  %s%n", "hits", "line");
+        for (final Line line : byHits) {
+            out.printf("%12d  %s:%d%n", line.hits(), line.script(), line.line());
+        }
+    }
+
+    // One line per call path, `script;outer;inner <self nanos>`, as flamegraph.pl and speedscope read them
+    public void writeCollapsed(final PrintWriter out) {
+        for (final Script script : scripts.values()) {
+            writeCollapsed(out, script.root, script.root.label);
+        }
+    }
+
+    private static void writeCollapsed(final PrintWriter out, final Node node, final String path) {
+        if (node.self > 0) out.println(path + " " + node.self);
+        for (final Node child : node.children.values()) {
+            writeCollapsed(out, child, path + ";" + child.label);
+        }
+    }
+
+    private static double millis(final long nanos) {
+        return nanos / 1_000_000.0;
+    }
+}
@@ -1,39 +1,109 @@
 package com.craftinginterpreters.lox.visitors;
 
+import com.craftinginterpreters.lox.Engine;
 import com.craftinginterpreters.lox.Environment;
+import com.craftinginterpreters.lox.FramePool;
+import com.craftinginterpreters.lox.Numbers;
 import com.craftinginterpreters.lox.ast.Expr;
 import com.craftinginterpreters.lox.ast.Stmt;
 import com.craftinginterpreters.lox.callables.classes.LoxClass;
 import com.craftinginterpreters.lox.callables.classes.LoxInstance;
+import com.craftinginterpreters.lox.callables.functions.system.arrays.Len;
+import com.craftinginterpreters.lox.callables.functions.system.arrays.LoxArray;
+import com.craftinginterpreters.lox.callables.functions.system.arrays.Pop;
+import com.craftinginterpreters.lox.callables.functions.system.arrays.Push;
+import com.craftinginterpreters.lox.callables.functions.system.arrays.Slice;
+import com.craftinginterpreters.lox.callables.functions.system.channels.Channel;
+import com.craftinginterpreters.lox.callables.functions.system.channels.Receive;
+import com.craftinginterpreters.lox.callables.functions.system.channels.Select;
+import com.craftinginterpreters.lox.callables.functions.system.channels.Send;
+import com.craftinginterpreters.lox.callables.functions.system.maps.Contains;
+import com.craftinginterpreters.lox.callables.functions.system.maps.Get;
+import com.craftinginterpreters.lox.callables.functions.system.maps.Keys;
+import com.craftinginterpreters.lox.callables.functions.system.maps.LoxMap;
+import com.craftinginterpreters.lox.callables.functions.system.maps.NewMap;
+import com.craftinginterpreters.lox.callables.functions.system.maps.Put;
+import com.craftinginterpreters.lox.callables.functions.system.maps.Remove;
 import com.craftinginterpreters.lox.callables.functions.system.numbers.IsEven;
+import com.craftinginterpreters.lox.callables.functions.system.tasks.Join;
+import com.craftinginterpreters.lox.callables.functions.system.tasks.Spawn;
 import com.craftinginterpreters.lox.common.ProblemReporter;
 import com.craftinginterpreters.lox.common.errors.RuntimeError;
 import com.craftinginterpreters.lox.common.token.Token;
 import com.craftinginterpreters.lox.common.token.TokenType;
 import com.craftinginterpreters.lox.callables.LoxCallable;
 import com.craftinginterpreters.lox.callables.functions.LoxFunction;
-import com.craftinginterpreters.lox.callables.functions.Return;
 import com.craftinginterpreters.lox.callables.functions.system.time.Clock;
-import com.craftinginterpreters.lox.flows.Break;
-import com.craftinginterpreters.lox.flows.Continue;
+import com.craftinginterpreters.lox.flows.Completion;
+import com.craftinginterpreters.lox.profiler.Profiler;
 
+import java.io.PrintStream;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
-public class Interpreter implements Expr.Visitor<Object>, Stmt.Visitor<Void> {
+// All the state of a run lives here: the environment, the globals and where `print` goes.
+// The tree is only read, so any number of Interpreters can run the same tree at once, one per thread.
+// A task started with spawn() runs on an Interpreter of its own that shares the globals of the one it came from.
+public class Interpreter implements Engine, Expr.Visitor<Object>, Stmt.Visitor<Completion> {
 
-    public final Environment globals = new Environment();
+    public final Environment globals;
+    private final PrintStream out;
 
-    private Environment environment = globals;
-    private final Map<Expr, Integer> locals = new HashMap<>();
+    private Environment environment;
+    private final FramePool frames = new FramePool();
+
+    // Only set with --profile
+    private Profiler profiler;
+
+    // Set by a `return` statement and picked up by the function call it completes
+    private Object returnValue;
+
+    // See number()
+    private boolean notNumber = false;
+    private Object notNumberValue;
 
     public Interpreter() {
+        this(System.out);
+    }
+
+    public Interpreter(final PrintStream out) {
+        this(new Environment(), out);
         globals.define("clock", new Clock());
         globals.define("isEven", new IsEven());
+        globals.define("spawn", new Spawn());
+        globals.define("join", new Join());
+        globals.define("channel", new Channel());
+        globals.define("send", new Send());
+        globals.define("receive", new Receive());
+        globals.define("select", new Select());
+        globals.define("len", new Len());
+        globals.define("push", new Push());
+        globals.define("pop", new Pop());
+        globals.define("slice", new Slice());
+        globals.define("map", new NewMap());
+        globals.define("get", new Get());
+        globals.define("put", new Put());
+        globals.define("remove", new Remove());
+        globals.define("contains", new Contains());
+        globals.define("keys", new Keys());
+    }
+
+    private Interpreter(final Environment globals, final PrintStream out) {
+        this.globals = globals;
+        this.environment = globals;
+        this.out = out;
+    }
+
+    // For a task started by this one: same globals and output, its own environment and call state.
+    // Profilers aren't thread safe, so tasks go unprofiled.
+    public Interpreter spawned() {
+        return new Interpreter(globals, out);
     }
 
+    @Override
     public void interpret(final List<Stmt> statements, final ProblemReporter reporter) {
         try {
             for (final Stmt statement : statements) {
@@ -44,18 +114,27 @@ public class Interpreter implements Expr.Visitor<Object>, Stmt.Visitor<Void> {
         }
     }
 
-    public void resolve(final Expr expr, int depth) {
-        locals.put(expr, depth);
+    public void profile(final Profiler profiler) {
+        this.profiler = profiler;
+    }
+
+    public Profiler profiler() {
+        return profiler;
     }
 
     @Override
-    public Void visitBlockStmt(Stmt.Block stmt) {
-        executeBlock(stmt.statements, new Environment(environment));
-        return null;
+    public Completion visitBlockStmt(Stmt.Block stmt) {
+        if (!stmt.scoped) return executeStatements(stmt.statements);
+        if (stmt.captured) return executeBlock(stmt.statements, new Environment(environment));
+
+        final Environment frame = frames.take(environment, 0);
+        final Completion completion = executeBlock(stmt.statements, frame);
+        frames.giveBack(frame);
+        return completion;
     }
 
     @Override
-    public Void visitClassStmt(Stmt.Class stmt) {
+    public Completion visitClassStmt(Stmt.Class stmt) {
 
         Object superclass = null;
         if (stmt.superclass != null) {
@@ -65,13 +144,12 @@ public class Interpreter implements Expr.Visitor<Object>, Stmt.Visitor<Void> {
             }
         }
 
-        environment.define(stmt.name.lexeme(), null);
-
         if (stmt.superclass != null) {
             environment = new Environment(environment);
             environment.define("super", superclass);
         }
 
+        if (profiler != null) profiler.declare(stmt);
         final Map<String , LoxFunction> methods = new HashMap<>();
 
         for (final Stmt.Function method : stmt.methods) {
@@ -85,78 +163,96 @@ public class Interpreter implements Expr.Visitor<Object>, Stmt.Visitor<Void> {
             environment = environment.getEnclosing();
         }
 
-        environment.assign(stmt.name, klass);
-        return null;
+        // Locals are defined by slot, so the class is only defined once it is complete.
+        // Methods look the class up when they run, which is always after this point.
+        environment.define(stmt.name.lexeme(), klass);
+        return Completion.NORMAL;
     }
 
     @Override
-    public Void visitExpressionStmt(Stmt.Expression stmt) {
+    public Completion visitExpressionStmt(Stmt.Expression stmt) {
+        // The value of e.g. `i = i + 1;` is thrown away, so there's no need to box it just to return it
+        if (stmt.expression instanceof Expr.Assign assign && assign.depth >= 0 && isArithmetic(assign.value)) {
+            assignLocalNumber(assign);
+            return Completion.NORMAL;
+        }
+        if (stmt.expression instanceof Expr.CompoundAssign compound && compound.depth >= 0) {
+            compoundAssignLocal(compound);
+            return Completion.NORMAL;
+        }
+        if (stmt.expression instanceof Expr.Increment increment && increment.depth >= 0) {
+            incrementLocal(increment);
+            return Completion.NORMAL;
+        }
+        if (stmt.expression instanceof Expr.IndexSet indexSet) {
+            setIndex(indexSet, false);
+            return Completion.NORMAL;
+        }
+
         evaluate(stmt.expression);
-        return null;
+        return Completion.NORMAL;
     }
 
     @Override
-    public Void visitFunctionStmt(Stmt.Function stmt) {
+    public Completion visitFunctionStmt(Stmt.Function stmt) {
+        if (profiler != null) profiler.declare(stmt);
         LoxFunction function = new LoxFunction(stmt, environment);
         // Registration and Scoping for inner and outer functions
         environment.define(stmt.name.lexeme(), function);
-        return null;
+        return Completion.NORMAL;
     }
 
     @Override
-    public Void visitIfStmt(Stmt.If stmt) {
+    public Completion visitIfStmt(Stmt.If stmt) {
         if (isTruthy(evaluate(stmt.condition))) {
-            execute(stmt.thenBranch);
+            return execute(stmt.thenBranch);
         } else if (stmt.elseBranch != null) {
-            execute(stmt.elseBranch);
+            return execute(stmt.elseBranch);
         }
-        return null;
+        return Completion.NORMAL;
     }
 
     @Override
-    public Void visitPrintStmt(Stmt.Print stmt) {
+    public Completion visitPrintStmt(Stmt.Print stmt) {
         final Object value = evaluate(stmt.expression);
-        System.out.println(stringify(value));
-        return null;
+        out.println(stringify(value));
+        return Completion.NORMAL;
     }
 
     @Override
-    public Void visitReturnStmt(Stmt.Return stmt) {
+    public Completion visitReturnStmt(Stmt.Return stmt) {
         Object value = null;
 
         if (stmt.value != null) value = evaluate(stmt.value);
 
-        throw new Return(value);
+        returnValue = value;
+        return Completion.RETURN;
     }
 
     @Override
-    public Void visitWhileStmt(Stmt.While stmt) {
-        try {
-            while (isTruthy(evaluate(stmt.condition))) {
-                try {
-                    execute(stmt.body);
-                } catch (final Continue continue_ex) {
-                    // Swallow and move to next iter
-                }
-            }
-        } catch (final Break break_ex) {
-            // swallow the exception and break While execution
+    public Completion visitWhileStmt(Stmt.While stmt) {
+        while (isTruthy(evaluate(stmt.condition))) {
+            final Completion completion = execute(stmt.body);
+
+            // CONTINUE needs nothing, the body is already done and we move on to the next iteration
+            if (completion == Completion.BREAK) break;
+            if (completion == Completion.RETURN) return completion;
         }
-        return null;
+        return Completion.NORMAL;
     }
 
     @Override
-    public Void visitBreakStmt(Stmt.Break stmt) {
-        throw new Break();
+    public Completion visitBreakStmt(Stmt.Break stmt) {
+        return Completion.BREAK;
     }
 
     @Override
-    public Void visitContinueStmt(Stmt.Continue stmt) {
-        throw new Continue();
+    public Completion visitContinueStmt(Stmt.Continue stmt) {
+        return Completion.CONTINUE;
     }
 
     @Override
-    public Void visitVarStmt(Stmt.Var stmt) {
+    public Completion visitVarStmt(Stmt.Var stmt) {
         Object value = null;
 
         if (stmt.initializer != null) {
@@ -164,16 +260,20 @@ public class Interpreter implements Expr.Visitor<Object>, Stmt.Visitor<Void> {
         }
 
         environment.define(stmt.name.lexeme(), value);
-        return null;
+        return Completion.NORMAL;
     }
 
     @Override
     public Object visitAssignExpr(Expr.Assign expr) {
+        if (expr.depth >= 0 && isArithmetic(expr.value)) {
+            assignLocalNumber(expr);
+            return environment.getAt(expr.depth, expr.slot);
+        }
+
         Object value = evaluate(expr.value);
 
-        final Integer hops = locals.get(expr);
-        if (hops != null) {
-            environment.assignAt(hops, expr.name, value);
+        if (expr.depth >= 0) {
+            environment.assignAt(expr.depth, expr.slot, value);
         } else {
             globals.assign(expr.name, value);
         }
@@ -183,32 +283,45 @@ public class Interpreter implements Expr.Visitor<Object>, Stmt.Visitor<Void> {
 
     @Override
     public Object visitBinaryExpr(Expr.Binary expr) {
-        Object left = evaluate(expr.left);
-        Object right = evaluate(expr.right);
-
         switch (expr.operator.type()) {
+            case PLUS, MINUS, STAR, SLASH, MODULUS -> {
+                final double value = arithmetic(expr);
+                return notNumber ? takeNotNumber() : Numbers.box(value);
+            }
+            case GREATER, GREATER_EQUAL, LESS, LESS_EQUAL -> {
+                return compare(expr);
+            }
+            default -> {
+                return binary(expr.operator, evaluate(expr.left), evaluate(expr.right));
+            }
+        }
+    }
+
+    // Every binary operator on already evaluated operands
+    private Object binary(final Token operator, final Object left, final Object right) {
+        switch (operator.type()) {
             case GREATER -> {
-                checkNumberOperands(expr.operator, left, right);
+                checkNumberOperands(operator, left, right);
                 return (double) left > (double) right;
             }
             case GREATER_EQUAL -> {
-                checkNumberOperands(expr.operator, left, right);
+                checkNumberOperands(operator, left, right);
                 return (double) left >= (double) right;
             }
             case LESS -> {
-                checkNumberOperands(expr.operator, left, right);
+                checkNumberOperands(operator, left, right);
                 return (double) left < (double) right;
             }
             case LESS_EQUAL -> {
-                checkNumberOperands(expr.operator, left, right);
+                checkNumberOperands(operator, left, right);
                 return (double) left <= (double) right;
             }
             case MODULUS -> {
-                checkNumberOperands(expr.operator, left, right);
+                checkNumberOperands(operator, left, right);
                 return (double) left % (double) right;
             }
             case MINUS -> {
-                checkNumberOperands(expr.operator, left, right);
+                checkNumberOperands(operator, left, right);
                 return (double) left - (double) right;
             }
             case PLUS ->
@@ -226,18 +339,18 @@ public class Interpreter implements Expr.Visitor<Object>, Stmt.Visitor<Void> {
                     return stringify(left) + stringify(right);
                 }
 
-                throw new RuntimeError(expr.operator, "Operands must be two numbers or two strings.");
+                throw new RuntimeError(operator, "Operands must be two numbers or two strings.");
             }
             case SLASH -> {
-                checkNumberOperands(expr.operator, left, right);
+                checkNumberOperands(operator, left, right);
                 final Double result = (double) left / (double) right;
-                if (result.isNaN()) throw new RuntimeError(expr.operator, "0/0 is not not allowed.");
+                if (result.isNaN()) throw new RuntimeError(operator, "0/0 is not not allowed.");
                 return result;
             }
             case STAR ->
             {
                 // Here is where python does weird stuff :P
-                checkNumberOperands(expr.operator, left, right);
+                checkNumberOperands(operator, left, right);
                 return (double) left * (double) right;
             }
             case BANG_EQUAL -> {
@@ -251,27 +364,90 @@ public class Interpreter implements Expr.Visitor<Object>, Stmt.Visitor<Void> {
         return null;
     }
 
+    @Override
+    public Object visitArrayExpr(Expr.Array expr) {
+        final List<Object> elements = new ArrayList<>(expr.elements.size());
+        for (final Expr element : expr.elements) {
+            elements.add(evaluate(element));
+        }
+        return new LoxArray(elements);
+    }
+
     @Override
     public Object visitCallExpr(Expr.Call expr) {
-        Object callee = evaluate(expr.callee);
+        if (expr.callee instanceof Expr.Get get) return invoke(get, expr);
+
+        final Object callee = evaluate(expr.callee);
+        return call(callee, evaluateArguments(expr), expr.paren);
+    }
 
-        final List<Object> args = new ArrayList<>();
+    // obj.method(args) runs the method with `obj` as `this` straight away, without binding a LoxFunction first.
+    // Anything else (fields holding functions, non-instances) goes down the normal path.
+    private Object invoke(final Expr.Get get, final Expr.Call expr) {
+        final Object object = evaluate(get.object);
+        if (!(object instanceof LoxInstance instance)) {
+            return call(null, evaluateArguments(expr), expr.paren);
+        }
+
+        final LoxFunction method = get.cache.method(instance, get.name);
+        if (method == null) {
+            return call(get.cache.get(instance, get.name), evaluateArguments(expr), expr.paren);
+        }
+
+        final List<Object> args = evaluateArguments(expr);
+        checkArity(method, args, expr.paren);
+        return method.invoke(this, instance, args);
+    }
+
+    private List<Object> evaluateArguments(final Expr.Call expr) {
+        final List<Object> args = new ArrayList<>(expr.arguments.size());
         for (Expr arg : expr.arguments) {
             args.add(evaluate(arg));
         }
+        return args;
+    }
 
+    private Object call(final Object callee, final List<Object> args, final Token paren) {
         if (!(callee instanceof LoxCallable callable)) {
-            throw new RuntimeError(expr.paren, "Can only call functions and classes");
+            throw new RuntimeError(paren, "Can only call functions and classes");
         }
 
+        checkArity(callable, args, paren);
+        return callable.call(this, args);
+    }
+
+    private void checkArity(final LoxCallable callable, final List<Object> args, final Token paren) {
         if (args.size() != callable.arity()) {
             throw new RuntimeError(
-                    expr.paren,
+                    paren,
                     "Expected %d arguments but got %d.".formatted(callable.arity(), args.size())
             );
         }
+    }
 
-        return callable.call(this, args);
+    @Override
+    public Object visitCompoundAssignExpr(Expr.CompoundAssign expr) {
+        if (expr.depth >= 0) {
+            compoundAssignLocal(expr);
+            return environment.getAt(expr.depth, expr.slot);
+        }
+
+        final Object value = binary(expr.operator, globals.get(expr.name), evaluate(expr.value));
+        globals.assign(expr.name, value);
+        return value;
+    }
+
+    @Override
+    public Object visitCompoundSetExpr(Expr.CompoundSet expr) {
+        final Object object = evaluate(expr.object);
+
+        if (!(object instanceof LoxInstance instance)) {
+            throw new RuntimeError(expr.name, "Only instances have fields.");
+        }
+
+        final Object value = binary(expr.operator, expr.getCache.get(instance, expr.name), evaluate(expr.value));
+        expr.setCache.set(instance, expr.name, value);
+        return value;
     }
 
     @Override
@@ -279,7 +455,7 @@ public class Interpreter implements Expr.Visitor<Object>, Stmt.Visitor<Void> {
         Object object = evaluate(expr.object);
 
         if (object instanceof LoxInstance instance) {
-            return instance.get(expr.name);
+            return expr.cache.get(instance, expr.name);
         }
         return null;
     }
@@ -294,6 +470,97 @@ public class Interpreter implements Expr.Visitor<Object>, Stmt.Visitor<Void> {
         return evaluate(expr.expression);
     }
 
+    @Override
+    public Object visitIndexExpr(Expr.Index expr) {
+        return index(evaluate(expr.object), expr);
+    }
+
+    // Number keys go to the map unboxed
+    private Object index(final Object object, final Expr.Index expr) {
+        if (object instanceof LoxMap map) {
+            final double key = number(expr.index);
+            if (notNumber) return map.get(expr.bracket, takeNotNumber());
+            return map.get(key);
+        }
+
+        final LoxArray array = array(object, expr.bracket);
+        return array.get(position(array, expr.bracket, expr.index));
+    }
+
+    @Override
+    public Object visitIndexSetExpr(Expr.IndexSet expr) {
+        return setIndex(expr, true);
+    }
+
+    // An array that holds only numbers takes a number without boxing it.
+    // The value is only boxed to be returned when the expression is `used`.
+    private Object setIndex(final Expr.IndexSet expr, final boolean used) {
+        final Object object = evaluate(expr.object);
+        if (object instanceof LoxMap map) {
+            final Object key = evaluate(expr.index);
+            final Object value = evaluate(expr.value);
+            map.put(expr.bracket, key, value);
+            return value;
+        }
+
+        // The value can change the array (pop() it, say), so the index is only checked once both are evaluated
+        final LoxArray array = array(object, expr.bracket);
+        final double index = number(expr.index);
+        final boolean indexIsNumber = !notNumber;
+        final Object otherIndex = indexIsNumber ? null : takeNotNumber();
+        final double value = number(expr.value);
+        final boolean valueIsNumber = !notNumber;
+        final Object other = valueIsNumber ? null : takeNotNumber();
+
+        final int position = indexIsNumber ? array.index(expr.bracket, index) : array.index(expr.bracket, otherIndex);
+        if (valueIsNumber) {
+            array.setNumber(position, value);
+            return used ? Numbers.box(value) : null;
+        }
+        array.set(position, other);
+        return other;
+    }
+
+    private static LoxArray array(final Object object, final Token bracket) {
+        if (object instanceof LoxArray array) return array;
+        throw new RuntimeError(bracket, "Only arrays and maps can be indexed.");
+    }
+
+    private int position(final LoxArray array, final Token bracket, final Expr index) {
+        final double value = number(index);
+        if (notNumber) return array.index(bracket, takeNotNumber());
+        return array.index(bracket, value);
+    }
+
+    @Override
+    public Object visitIncrementExpr(Expr.Increment expr) {
+        if (expr.depth >= 0) {
+            final double old = incrementLocal(expr);
+            return Numbers.box(expr.prefix ? old + delta(expr.operator) : old);
+        }
+
+        final Object old = globals.get(expr.name);
+        checkNumberOperand(expr.operator, old);
+        final Object updated = Numbers.box((double) old + delta(expr.operator));
+        globals.assign(expr.name, updated);
+        return expr.prefix ? updated : old;
+    }
+
+    @Override
+    public Object visitIncrementSetExpr(Expr.IncrementSet expr) {
+        final Object object = evaluate(expr.object);
+
+        if (!(object instanceof LoxInstance instance)) {
+            throw new RuntimeError(expr.name, "Only instances have fields.");
+        }
+
+        final Object old = expr.getCache.get(instance, expr.name);
+        checkNumberOperand(expr.operator, old);
+        final Object updated = Numbers.box((double) old + delta(expr.operator));
+        expr.setCache.set(instance, expr.name, updated);
+        return expr.prefix ? updated : old;
+    }
+
     @Override
     public Object visitLiteralExpr(Expr.Literal expr) {
         return expr.value;
@@ -323,16 +590,16 @@ public class Interpreter implements Expr.Visitor<Object>, Stmt.Visitor<Void> {
         }
 
         Object value = evaluate(expr.value);
-        ((LoxInstance) object).set(expr.name, value);
+        expr.cache.set((LoxInstance) object, expr.name, value);
         return value;
     }
 
     @Override
     public Object visitSuperExpr(Expr.Super expr) {
-        final int hops = locals.get(expr);
-        final LoxClass superClass = (LoxClass) environment.getAt(hops, "super");
+        final LoxClass superClass = (LoxClass) environment.getAt(expr.depth, expr.slot);
 
-        final LoxInstance instance = (LoxInstance) environment.getAt(hops - 1, "this");
+        // `this` is always slot 0 of the method scope right inside `super`'s
+        final LoxInstance instance = (LoxInstance) environment.getAt(expr.depth - 1, 0);
         final LoxFunction method = superClass.findMethod(expr.method.lexeme());
 
         if (method == null) {
@@ -344,7 +611,7 @@ public class Interpreter implements Expr.Visitor<Object>, Stmt.Visitor<Void> {
 
     @Override
     public Object visitThisExpr(Expr.This expr) {
-        return lookUpVariable(expr.keyword, expr);
+        return lookUpVariable(expr.keyword, expr.depth, expr.slot);
     }
 
     @Override
@@ -357,22 +624,198 @@ public class Interpreter implements Expr.Visitor<Object>, Stmt.Visitor<Void> {
             }
             case MINUS -> {
                 checkNumberOperand(expr.operator, right);
-                return - (double) right;
+                return Numbers.box(- (double) right);
             }
         }
         return null;
     }
 
+    // Numeric fast path.
+    // number() evaluates an expression to a primitive double, so chains like `a * b - c` and
+    // `i = i + 1` on locals don't box every intermediate result. Locals can hold the result unboxed (see Environment).
+    // When the expression turns out not to be a number (a string `+`, nil...) it sets notNumber
+    // and leaves the actual value in notNumberValue, and the caller falls back to the general path.
+    private double number(final Expr expr) {
+        switch (expr) {
+            case Expr.Literal literal when literal.value instanceof Double value -> {
+                return value;
+            }
+            case Expr.Grouping grouping -> {
+                return number(grouping.expression);
+            }
+            case Expr.Variable variable when variable.depth >= 0 -> {
+                final Environment scope = environment.ancestor(variable.depth);
+                if (scope.isUnboxed(variable.slot)) return scope.numberAt(variable.slot);
+                return toNumber(scope.valueAt(variable.slot));
+            }
+            case Expr.Binary binary when isArithmetic(binary) -> {
+                return arithmetic(binary);
+            }
+            case Expr.Increment increment when increment.depth >= 0 -> {
+                final double old = incrementLocal(increment);
+                return increment.prefix ? old + delta(increment.operator) : old;
+            }
+            case Expr.Index index -> {
+                final Object object = evaluate(index.object);
+                if (object instanceof LoxArray array && array.isUnboxed()) {
+                    return array.numberAt(position(array, index.bracket, index.index));
+                }
+                return toNumber(index(object, index));
+            }
+            case Expr.Unary unary when unary.operator.type() == TokenType.MINUS -> {
+                final double value = number(unary.right);
+                if (notNumber) {
+                    checkNumberOperand(unary.operator, takeNotNumber());
+                }
+                return -value;
+            }
+            default -> {
+                return toNumber(evaluate(expr));
+            }
+        }
+    }
+
+    private double arithmetic(final Expr.Binary expr) {
+        final double left = number(expr.left);
+        if (notNumber) {
+            final Object value = takeNotNumber();
+            return toNumber(binary(expr.operator, value, evaluate(expr.right)));
+        }
+
+        final double right = number(expr.right);
+        if (notNumber) {
+            final Object value = takeNotNumber();
+            return toNumber(binary(expr.operator, Numbers.box(left), value));
+        }
+
+        return calculate(expr.operator, left, right);
+    }
+
+    private static double calculate(final Token operator, final double left, final double right) {
+        switch (operator.type()) {
+            case PLUS -> {
+                return left + right;
+            }
+            case MINUS -> {
+                return left - right;
+            }
+            case STAR -> {
+                return left * right;
+            }
+            case SLASH -> {
+                final double result = left / right;
+                if (Double.isNaN(result)) throw new RuntimeError(operator, "0/0 is not not allowed.");
+                return result;
+            }
+            case MODULUS -> {
+                return left % right;
+            }
+            default -> throw new IllegalStateException("Not an arithmetic operator: " + operator);
+        }
+    }
+
+    private Object compare(final Expr.Binary expr) {
+        final double left = number(expr.left);
+        final boolean leftIsNumber = !notNumber;
+        if (notNumber) takeNotNumber();
+
+        final double right = number(expr.right);
+        final boolean rightIsNumber = !notNumber;
+        if (notNumber) takeNotNumber();
+
+        if (!leftIsNumber || !rightIsNumber) {
+            throw new RuntimeError(expr.operator, "Operands must be numbers.");
+        }
+
+        return switch (expr.operator.type()) {
+            case GREATER -> left > right;
+            case GREATER_EQUAL -> left >= right;
+            case LESS -> left < right;
+            case LESS_EQUAL -> left <= right;
+            default -> throw new IllegalStateException("Not a comparison operator: " + expr.operator);
+        };
+    }
+
+    private void assignLocalNumber(final Expr.Assign expr) {
+        final double value = number(expr.value);
+        if (notNumber) {
+            environment.assignAt(expr.depth, expr.slot, takeNotNumber());
+        } else {
+            environment.assignNumberAt(expr.depth, expr.slot, value);
+        }
+    }
+
+    // `a += x` on a local reads and writes its slot once, and keeps numbers unboxed like assignLocalNumber()
+    private void compoundAssignLocal(final Expr.CompoundAssign expr) {
+        final Environment scope = environment.ancestor(expr.depth);
+        final double current = scope.isUnboxed(expr.slot) ? scope.numberAt(expr.slot) : toNumber(scope.valueAt(expr.slot));
+        if (notNumber) {
+            scope.assignAt(0, expr.slot, binary(expr.operator, takeNotNumber(), evaluate(expr.value)));
+            return;
+        }
+
+        final double value = number(expr.value);
+        if (notNumber) {
+            scope.assignAt(0, expr.slot, binary(expr.operator, Numbers.box(current), takeNotNumber()));
+            return;
+        }
+
+        scope.assignNumberAt(0, expr.slot, calculate(expr.operator, current, value));
+    }
+
+    // `i++` and friends on a local: one trip up to its scope to read, check and write back the slot, unboxed.
+    // Returns the old value.
+    private double incrementLocal(final Expr.Increment expr) {
+        final Environment scope = environment.ancestor(expr.depth);
+        final double old;
+        if (scope.isUnboxed(expr.slot)) {
+            old = scope.numberAt(expr.slot);
+        } else {
+            final Object value = scope.valueAt(expr.slot);
+            checkNumberOperand(expr.operator, value);
+            old = (double) value;
+        }
+        scope.assignNumberAt(0, expr.slot, old + delta(expr.operator));
+        return old;
+    }
+
+    private static double delta(final Token operator) {
+        return operator.type() == TokenType.PLUS_PLUS ? 1 : -1;
+    }
+
+    private double toNumber(final Object value) {
+        if (value instanceof Double number) return number;
+
+        notNumber = true;
+        notNumberValue = value;
+        return 0;
+    }
+
+    private Object takeNotNumber() {
+        final Object value = notNumberValue;
+        notNumber = false;
+        notNumberValue = null;
+        return value;
+    }
+
+    private static boolean isArithmetic(final Expr expr) {
+        if (expr instanceof Expr.Unary unary) return unary.operator.type() == TokenType.MINUS;
+        if (!(expr instanceof Expr.Binary binary)) return false;
+
+        return switch (binary.operator.type()) {
+            case PLUS, MINUS, STAR, SLASH, MODULUS -> true;
+            default -> false;
+        };
+    }
+
     @Override
     public Object visitVariableExpr(Expr.Variable expr) {
-        return lookUpVariable(expr.name, expr);
+        return lookUpVariable(expr.name, expr.depth, expr.slot);
     }
 
-    private Object lookUpVariable(final Token name, final Expr expr) {
-        final Integer hops = locals.get(expr);
-
-        if (hops != null) {
-            return environment.getAt(hops, name);
+    private Object lookUpVariable(final Token name, final int depth, final int slot) {
+        if (depth >= 0) {
+            return environment.getAt(depth, slot);
         } else {
             return globals.get(name);
         }
@@ -382,29 +825,43 @@ public class Interpreter implements Expr.Visitor<Object>, Stmt.Visitor<Void> {
         return expr.accept(this);
     }
 
-    private void execute(final Stmt statement) {
-        statement.accept(this);
+    private Completion execute(final Stmt statement) {
+        if (profiler != null) profiler.hit(statement);
+        return statement.accept(this);
     }
 
-    public void executeBlock(final List<Stmt> statements, final Environment environment) {
+    public Completion executeBlock(final List<Stmt> statements, final Environment environment) {
         final Environment previousEnv = this.environment;
         try {
             this.environment = environment;
-
-            for (final Stmt statement : statements) {
-                execute(statement);
-            }
+            return executeStatements(statements);
         } finally {
             this.environment = previousEnv;
         }
     }
 
+    // Indexed, since an iterator per block run is most of what a loop would allocate otherwise
+    private Completion executeStatements(final List<Stmt> statements) {
+        for (int i = 0; i < statements.size(); i++) {
+            final Completion completion = execute(statements.get(i));
+            if (completion != Completion.NORMAL) return completion;
+        }
+        return Completion.NORMAL;
+    }
+
+    // Hands over the value of the `return` that just completed a function body
+    public Object takeReturnValue() {
+        final Object value = returnValue;
+        returnValue = null;
+        return value;
+    }
+
     private void checkNumberOperand(final Token operator, final Object operand) {
         if (operand instanceof Double) return;
         throw new RuntimeError(operator, "Operand must be a number.");
     }
 
-    private boolean isTruthy(Object object) {
+    public static boolean isTruthy(Object object) {
         return switch (object) {
             case null -> false;
             case Boolean b -> b;
@@ -414,14 +871,21 @@ public class Interpreter implements Expr.Visitor<Object>, Stmt.Visitor<Void> {
         };
     }
 
-    private boolean isEqual(Object a, Object b) {
+    public static boolean isEqual(Object a, Object b) {
         if (a == null && b == null) return true;
         if (a == null) return false;
         return a.equals(b);
     }
 
-    private String stringify(final Object object) {
+    public static String stringify(final Object object) {
+        return stringify(object, null);
+    }
+
+    // For the elements of an array or map: `printing` holds the arrays and maps around them (see LoxArray.stringify)
+    public static String stringify(final Object object, final Set<Object> printing) {
         if (object == null) return "nil";
+        if (printing != null && object instanceof LoxArray array) return array.stringify(printing);
+        if (printing != null && object instanceof LoxMap map) return map.stringify(printing);
 
         if (object instanceof Double) {
             final String text = object.toString();
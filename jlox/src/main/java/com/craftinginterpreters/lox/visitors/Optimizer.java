@@ -0,0 +1,334 @@
+package com.craftinginterpreters.lox.visitors;
+
+import com.craftinginterpreters.lox.ast.Expr;
+import com.craftinginterpreters.lox.ast.Stmt;
+import com.craftinginterpreters.lox.common.errors.RuntimeError;
+import com.craftinginterpreters.lox.common.token.TokenType;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Optional pass over a resolved tree, before it is run:
+// - constant expressions are folded into literals, groupings are dropped
+// - `if`/`while`/`and`/`or` on a literal condition keep only the branch that can run
+// - statements after return/break/continue and bare literal statements are dropped
+// - blocks that declare nothing are merged into the enclosing statement list
+// Only the parts that change are rebuilt. Removing blocks moves locals to other depths,
+// so the result must go through the Resolver again before it runs.
+public class Optimizer implements Expr.Visitor<Expr>, Stmt.Visitor<Stmt> {
+
+    // Folding evaluates with the tree-walker itself, so a folded value is exactly what it would have computed.
+    // An expression that fails (0/0, -"a", 1 + nil...) is left as it is, to fail at runtime as it always did.
+    private final Interpreter evaluator = new Interpreter();
+
+    public List<Stmt> optimize(final List<Stmt> statements) {
+        return statements(statements);
+    }
+
+    // Returns the same list when nothing in it changed
+    private List<Stmt> statements(final List<Stmt> statements) {
+        final List<Stmt> result = new ArrayList<>(statements.size());
+        boolean changed = false;
+        for (int i = 0; i < statements.size(); i++) {
+            final Stmt statement = statements.get(i);
+            final Stmt optimized = statement.accept(this);
+            if (optimized != statement) changed = true;
+
+            if (optimized instanceof Stmt.Block block && !Resolver.declares(block.statements)) {
+                result.addAll(block.statements);
+                changed = true;
+            } else if (optimized != null) {
+                result.add(optimized);
+            }
+
+            // Nothing after a jump can run
+            if (!result.isEmpty() && jumps(result.getLast())) {
+                changed |= i < statements.size() - 1;
+                break;
+            }
+        }
+        return changed ? result : statements;
+    }
+
+    // For a statement that must stay a single statement, e.g. a loop body
+    private Stmt statement(final Stmt statement) {
+        final Stmt optimized = statement.accept(this);
+        if (optimized == null) return at(statement, new Stmt.Block(List.of()));
+        if (optimized instanceof Stmt.Block block && block.statements.size() == 1 && !Resolver.declares(block.statements)) {
+            return block.statements.getFirst();
+        }
+        return optimized;
+    }
+
+    // A rebuilt statement keeps the line of the one it replaces
+    private static <T extends Stmt> T at(final Stmt original, final T statement) {
+        statement.line = original.line;
+        return statement;
+    }
+
+    private Expr expression(final Expr expr) {
+        return expr.accept(this);
+    }
+
+    private static boolean jumps(final Stmt statement) {
+        return statement instanceof Stmt.Return || statement instanceof Stmt.Break || statement instanceof Stmt.Continue;
+    }
+
+    private static boolean isLiteral(final Expr expr) {
+        return expr instanceof Expr.Literal;
+    }
+
+    private Expr fold(final Expr expr) {
+        try {
+            return new Expr.Literal(expr.accept(evaluator));
+        } catch (final RuntimeError e) {
+            return expr;
+        }
+    }
+
+    @Override
+    public Expr visitAssignExpr(Expr.Assign expr) {
+        final Expr value = expression(expr.value);
+        if (value == expr.value) return expr;
+        return new Expr.Assign(expr.name, value);
+    }
+
+    @Override
+    public Expr visitArrayExpr(Expr.Array expr) {
+        final List<Expr> elements = new ArrayList<>(expr.elements.size());
+        boolean changed = false;
+        for (final Expr element : expr.elements) {
+            final Expr optimized = expression(element);
+            changed |= optimized != element;
+            elements.add(optimized);
+        }
+        if (!changed) return expr;
+        return new Expr.Array(expr.bracket, elements);
+    }
+
+    @Override
+    public Expr visitBinaryExpr(Expr.Binary expr) {
+        final Expr left = expression(expr.left);
+        final Expr right = expression(expr.right);
+        final Expr.Binary binary = left == expr.left && right == expr.right
+                ? expr
+                : new Expr.Binary(left, expr.operator, right);
+        return isLiteral(left) && isLiteral(right) ? fold(binary) : binary;
+    }
+
+    @Override
+    public Expr visitCallExpr(Expr.Call expr) {
+        final Expr callee = expression(expr.callee);
+        final List<Expr> arguments = new ArrayList<>(expr.arguments.size());
+        boolean changed = callee != expr.callee;
+        for (final Expr argument : expr.arguments) {
+            final Expr optimized = expression(argument);
+            changed |= optimized != argument;
+            arguments.add(optimized);
+        }
+        if (!changed) return expr;
+        return new Expr.Call(callee, expr.paren, arguments);
+    }
+
+    @Override
+    public Expr visitCompoundAssignExpr(Expr.CompoundAssign expr) {
+        final Expr value = expression(expr.value);
+        if (value == expr.value) return expr;
+        return new Expr.CompoundAssign(expr.name, expr.operator, value);
+    }
+
+    @Override
+    public Expr visitCompoundSetExpr(Expr.CompoundSet expr) {
+        final Expr object = expression(expr.object);
+        final Expr value = expression(expr.value);
+        if (object == expr.object && value == expr.value) return expr;
+        return new Expr.CompoundSet(object, expr.name, expr.operator, value);
+    }
+
+    @Override
+    public Expr visitGetExpr(Expr.Get expr) {
+        final Expr object = expression(expr.object);
+        if (object == expr.object) return expr;
+        return new Expr.Get(object, expr.name);
+    }
+
+    // Parentheses only matter to the Parser
+    @Override
+    public Expr visitGroupingExpr(Expr.Grouping expr) {
+        return expression(expr.expression);
+    }
+
+    @Override
+    public Expr visitIndexExpr(Expr.Index expr) {
+        final Expr object = expression(expr.object);
+        final Expr index = expression(expr.index);
+        if (object == expr.object && index == expr.index) return expr;
+        return new Expr.Index(object, expr.bracket, index);
+    }
+
+    @Override
+    public Expr visitIndexSetExpr(Expr.IndexSet expr) {
+        final Expr object = expression(expr.object);
+        final Expr index = expression(expr.index);
+        final Expr value = expression(expr.value);
+        if (object == expr.object && index == expr.index && value == expr.value) return expr;
+        return new Expr.IndexSet(object, expr.bracket, index, value);
+    }
+
+    @Override
+    public Expr visitIncrementExpr(Expr.Increment expr) {
+        return expr;
+    }
+
+    @Override
+    public Expr visitIncrementSetExpr(Expr.IncrementSet expr) {
+        final Expr object = expression(expr.object);
+        if (object == expr.object) return expr;
+        return new Expr.IncrementSet(object, expr.name, expr.operator, expr.prefix);
+    }
+
+    @Override
+    public Expr visitLiteralExpr(Expr.Literal expr) {
+        return expr;
+    }
+
+    @Override
+    public Expr visitLogicalExpr(Expr.Logical expr) {
+        final Expr left = expression(expr.left);
+        final Expr right = expression(expr.right);
+
+        if (left instanceof Expr.Literal literal) {
+            final boolean shortCircuits = expr.operator.type() == TokenType.OR
+                    ? Interpreter.isTruthy(literal.value)
+                    : !Interpreter.isTruthy(literal.value);
+            return shortCircuits ? left : right;
+        }
+
+        if (left == expr.left && right == expr.right) return expr;
+        return new Expr.Logical(left, expr.operator, right);
+    }
+
+    @Override
+    public Expr visitSetExpr(Expr.Set expr) {
+        final Expr object = expression(expr.object);
+        final Expr value = expression(expr.value);
+        if (object == expr.object && value == expr.value) return expr;
+        return new Expr.Set(object, expr.name, value);
+    }
+
+    @Override
+    public Expr visitSuperExpr(Expr.Super expr) {
+        return expr;
+    }
+
+    @Override
+    public Expr visitThisExpr(Expr.This expr) {
+        return expr;
+    }
+
+    @Override
+    public Expr visitUnaryExpr(Expr.Unary expr) {
+        final Expr right = expression(expr.right);
+        final Expr.Unary unary = right == expr.right ? expr : new Expr.Unary(expr.operator, right);
+        return isLiteral(right) ? fold(unary) : unary;
+    }
+
+    @Override
+    public Expr visitVariableExpr(Expr.Variable expr) {
+        return expr;
+    }
+
+    @Override
+    public Stmt visitBlockStmt(Stmt.Block stmt) {
+        final List<Stmt> statements = statements(stmt.statements);
+        if (statements == stmt.statements) return stmt;
+        return at(stmt, new Stmt.Block(statements));
+    }
+
+    @Override
+    public Stmt visitClassStmt(Stmt.Class stmt) {
+        final List<Stmt.Function> methods = new ArrayList<>(stmt.methods.size());
+        boolean changed = false;
+        for (final Stmt.Function method : stmt.methods) {
+            final Stmt.Function optimized = (Stmt.Function) method.accept(this);
+            changed |= optimized != method;
+            methods.add(optimized);
+        }
+        if (!changed) return stmt;
+        return at(stmt, new Stmt.Class(stmt.name, stmt.superclass, methods));
+    }
+
+    // A literal on its own does nothing
+    @Override
+    public Stmt visitExpressionStmt(Stmt.Expression stmt) {
+        final Expr expression = expression(stmt.expression);
+        if (isLiteral(expression)) return null;
+        if (expression == stmt.expression) return stmt;
+        return at(stmt, new Stmt.Expression(expression));
+    }
+
+    @Override
+    public Stmt visitFunctionStmt(Stmt.Function stmt) {
+        final List<Stmt> body = statements(stmt.body);
+        if (body == stmt.body) return stmt;
+        return at(stmt, new Stmt.Function(stmt.name, stmt.params, body));
+    }
+
+    @Override
+    public Stmt visitIfStmt(Stmt.If stmt) {
+        final Expr condition = expression(stmt.condition);
+
+        if (condition instanceof Expr.Literal literal) {
+            if (Interpreter.isTruthy(literal.value)) return stmt.thenBranch.accept(this);
+            return stmt.elseBranch == null ? null : stmt.elseBranch.accept(this);
+        }
+
+        final Stmt thenBranch = statement(stmt.thenBranch);
+        final Stmt elseBranch = stmt.elseBranch == null ? null : statement(stmt.elseBranch);
+        if (condition == stmt.condition && thenBranch == stmt.thenBranch && elseBranch == stmt.elseBranch) return stmt;
+        return at(stmt, new Stmt.If(condition, thenBranch, elseBranch));
+    }
+
+    @Override
+    public Stmt visitPrintStmt(Stmt.Print stmt) {
+        final Expr expression = expression(stmt.expression);
+        if (expression == stmt.expression) return stmt;
+        return at(stmt, new Stmt.Print(expression));
+    }
+
+    @Override
+    public Stmt visitReturnStmt(Stmt.Return stmt) {
+        if (stmt.value == null) return stmt;
+        final Expr value = expression(stmt.value);
+        if (value == stmt.value) return stmt;
+        return at(stmt, new Stmt.Return(stmt.keyword, value));
+    }
+
+    @Override
+    public Stmt visitWhileStmt(Stmt.While stmt) {
+        final Expr condition = expression(stmt.condition);
+        if (condition instanceof Expr.Literal literal && !Interpreter.isTruthy(literal.value)) return null;
+
+        final Stmt body = statement(stmt.body);
+        if (condition == stmt.condition && body == stmt.body) return stmt;
+        return at(stmt, new Stmt.While(condition, body));
+    }
+
+    @Override
+    public Stmt visitBreakStmt(Stmt.Break stmt) {
+        return stmt;
+    }
+
+    @Override
+    public Stmt visitContinueStmt(Stmt.Continue stmt) {
+        return stmt;
+    }
+
+    @Override
+    public Stmt visitVarStmt(Stmt.Var stmt) {
+        if (stmt.initializer == null) return stmt;
+        final Expr initializer = expression(stmt.initializer);
+        if (initializer == stmt.initializer) return stmt;
+        return at(stmt, new Stmt.Var(stmt.name, initializer));
+    }
+}
@@ -12,18 +12,28 @@ import java.util.Stack;
 
 public class Resolver implements Expr.Visitor<Void>, Stmt.Visitor<Void> {
 
-    private final Interpreter interpreter;
     private final ProblemReporter reporter;
-    private final Stack<Map<String, Boolean>> scopes = new Stack<>();
+    private final Stack<Map<String, Local>> scopes = new Stack<>();
     private FunctionType currentFunction = FunctionType.NONE;
     private ClassType currentClass = ClassType.NONE;
     private ControlFlowType currentControlFlow = ControlFlowType.NONE;
+    // Functions and methods resolved so far
+    private int functions = 0;
 
-    public Resolver(final Interpreter interpreter, final ProblemReporter reporter) {
-        this.interpreter = interpreter;
+    public Resolver(final ProblemReporter reporter) {
         this.reporter = reporter;
     }
 
+    // A local variable's slot in its scope's Environment, and whether its initializer has run yet.
+    private static final class Local {
+        final int slot;
+        boolean defined = false;
+
+        Local(final int slot) {
+            this.slot = slot;
+        }
+    }
+
     private enum FunctionType {
         NONE,
         FUNCTION,
@@ -56,6 +66,15 @@ public class Resolver implements Expr.Visitor<Void>, Stmt.Visitor<Void> {
         return null;
     }
 
+    @Override
+    public Void visitArrayExpr(Expr.Array expr) {
+        for (Expr element : expr.elements) {
+            resolve(element);
+        }
+
+        return null;
+    }
+
     @Override
     public Void visitCallExpr(Expr.Call expr) {
         resolve(expr.callee);
@@ -67,6 +86,25 @@ public class Resolver implements Expr.Visitor<Void>, Stmt.Visitor<Void> {
         return null;
     }
 
+    @Override
+    public Void visitCompoundAssignExpr(Expr.CompoundAssign expr) {
+        // `a += x` reads `a` too
+        if (!scopes.isEmpty() && isDeclaredButNotDefined(scopes.peek().get(expr.name.lexeme()))) {
+            reporter.error(expr.name, "Can't read local variable in its own initializer.");
+        }
+
+        resolve(expr.value);
+        resolveLocal(expr, expr.name);
+        return null;
+    }
+
+    @Override
+    public Void visitCompoundSetExpr(Expr.CompoundSet expr) {
+        resolve(expr.object);
+        resolve(expr.value);
+        return null;
+    }
+
     @Override
     public Void visitGetExpr(Expr.Get expr) {
         resolve(expr.object);
@@ -79,6 +117,37 @@ public class Resolver implements Expr.Visitor<Void>, Stmt.Visitor<Void> {
         return null;
     }
 
+    @Override
+    public Void visitIndexExpr(Expr.Index expr) {
+        resolve(expr.object);
+        resolve(expr.index);
+        return null;
+    }
+
+    @Override
+    public Void visitIndexSetExpr(Expr.IndexSet expr) {
+        resolve(expr.object);
+        resolve(expr.index);
+        resolve(expr.value);
+        return null;
+    }
+
+    @Override
+    public Void visitIncrementExpr(Expr.Increment expr) {
+        if (!scopes.isEmpty() && isDeclaredButNotDefined(scopes.peek().get(expr.name.lexeme()))) {
+            reporter.error(expr.name, "Can't read local variable in its own initializer.");
+        }
+
+        resolveLocal(expr, expr.name);
+        return null;
+    }
+
+    @Override
+    public Void visitIncrementSetExpr(Expr.IncrementSet expr) {
+        resolve(expr.object);
+        return null;
+    }
+
     @Override
     public Void visitLiteralExpr(Expr.Literal expr) {
         return null;
@@ -129,7 +198,7 @@ public class Resolver implements Expr.Visitor<Void>, Stmt.Visitor<Void> {
 
     @Override
     public Void visitVariableExpr(Expr.Variable expr) {
-        if (!scopes.isEmpty() && scopes.peek().get(expr.name.lexeme()) == Boolean.FALSE) {
+        if (!scopes.isEmpty() && isDeclaredButNotDefined(scopes.peek().get(expr.name.lexeme()))) {
             reporter.error(expr.name, "Can't read local variable in its own initializer.");
         }
 
@@ -137,14 +206,31 @@ public class Resolver implements Expr.Visitor<Void>, Stmt.Visitor<Void> {
         return null;
     }
 
+    // A block that declares nothing gets no scope, and runs in the enclosing environment.
+    // Only functions (methods included) can hold on to a block's environment once it is done,
+    // so a block without any inside it lets the engines reuse its environment.
     @Override
     public Void visitBlockStmt(Stmt.Block stmt) {
-        beginScope();
+        stmt.scoped = declares(stmt.statements);
+        final int enclosingFunctions = functions;
+
+        if (stmt.scoped) beginScope();
         resolve(stmt.statements);
-        endScope();
+        if (stmt.scoped) endScope();
+
+        stmt.captured = functions != enclosingFunctions;
         return null;
     }
 
+    static boolean declares(final List<Stmt> statements) {
+        for (final Stmt statement : statements) {
+            if (statement instanceof Stmt.Var || statement instanceof Stmt.Function || statement instanceof Stmt.Class) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     @Override
     public Void visitClassStmt(Stmt.Class stmt) {
         final ClassType enclosingClass = currentClass;
@@ -163,22 +249,17 @@ public class Resolver implements Expr.Visitor<Void>, Stmt.Visitor<Void> {
 
         if (stmt.superclass != null) {
             beginScope();
-            scopes.peek().put("super", true);
+            defineSynthetic("super");
         }
 
-        beginScope();
-        scopes.peek().put("this", true);
-
         for (Stmt.Function method : stmt.methods) {
             FunctionType declaration = method.name.lexeme().equals("init")
                     ? FunctionType.INITIALIZER
-                    : FunctionType.FUNCTION;
+                    : FunctionType.METHOD;
 
             resolveFunction(method, declaration);
         }
 
-        endScope();
-
         if (stmt.superclass != null) {
             endScope();
         }
@@ -274,25 +355,39 @@ public class Resolver implements Expr.Visitor<Void>, Stmt.Visitor<Void> {
     private void declare(Token name) {
         if (scopes.isEmpty()) return;
 
-        Map<String, Boolean> scope = scopes.peek();
+        Map<String, Local> scope = scopes.peek();
 
         if (scope.containsKey(name.lexeme())) {
             reporter.error(name,
                     "Already a variable with '%s' name is in this scope"
                             .formatted(name.lexeme()));
+            return;
         }
 
-        scope.put(name.lexeme(), false);
+        // Slots are handed out in declaration order, which is also the order the Interpreter defines them.
+        scope.put(name.lexeme(), new Local(scope.size()));
     }
 
     private void define(Token name) {
         if (scopes.isEmpty()) return;
 
-        scopes.peek().put(name.lexeme(), true);
+        scopes.peek().get(name.lexeme()).defined = true;
+    }
+
+    // `super` lives alone in its own scope and `this` comes first in a method's, so both always end up in slot 0.
+    private void defineSynthetic(final String name) {
+        final Map<String, Local> scope = scopes.peek();
+        final Local local = new Local(scope.size());
+        local.defined = true;
+        scope.put(name, local);
+    }
+
+    private boolean isDeclaredButNotDefined(final Local local) {
+        return local != null && !local.defined;
     }
 
     private void beginScope() {
-        scopes.push(new HashMap<String, Boolean>());
+        scopes.push(new HashMap<String, Local>());
     }
 
     private void endScope() {
@@ -315,18 +410,60 @@ public class Resolver implements Expr.Visitor<Void>, Stmt.Visitor<Void> {
 
     private void resolveLocal(Expr expr, Token name) {
         for (int i = scopes.size() - 1; i >= 0; i --) {
-            if (scopes.get(i).containsKey(name.lexeme())) {
-                interpreter.resolve(expr, scopes.size() - 1 - i);
+            final Local local = scopes.get(i).get(name.lexeme());
+            if (local != null) {
+                setResolution(expr, scopes.size() - 1 - i, local.slot);
                 return;
             }
         }
+        // Not found in any scope, so it stays unresolved (depth -1) and is treated as a global
+    }
+
+    private void setResolution(final Expr expr, final int depth, final int slot) {
+        switch (expr) {
+            case Expr.Variable variable -> {
+                variable.depth = depth;
+                variable.slot = slot;
+            }
+            case Expr.Assign assign -> {
+                assign.depth = depth;
+                assign.slot = slot;
+            }
+            case Expr.CompoundAssign compound -> {
+                compound.depth = depth;
+                compound.slot = slot;
+            }
+            case Expr.Increment increment -> {
+                increment.depth = depth;
+                increment.slot = slot;
+            }
+            case Expr.This thisExpr -> {
+                thisExpr.depth = depth;
+                thisExpr.slot = slot;
+            }
+            case Expr.Super superExpr -> {
+                superExpr.depth = depth;
+                superExpr.slot = slot;
+            }
+            default -> throw new IllegalStateException("Unexpected resolution target: " + expr);
+        }
     }
 
     private void resolveFunction(final Stmt.Function function, final FunctionType functionType) {
+        functions++;
         final FunctionType enclosingFunction = currentFunction;
         currentFunction = functionType;
 
+        // A loop around the declaration is not a loop around the body: break/continue can't leave a function
+        final ControlFlowType enclosingControlFlow = currentControlFlow;
+        currentControlFlow = ControlFlowType.NONE;
+
         beginScope();
+        // Methods get `this` in their own frame, in front of the parameters,
+        // so a call can put the receiver straight into the environment it creates anyway
+        if (functionType == FunctionType.METHOD || functionType == FunctionType.INITIALIZER) {
+            defineSynthetic("this");
+        }
         for (Token param: function.params) {
             declare(param);
             define(param);
@@ -334,5 +471,6 @@ public class Resolver implements Expr.Visitor<Void>, Stmt.Visitor<Void> {
         resolve(function.body);
         endScope();
         currentFunction = enclosingFunction;
+        currentControlFlow = enclosingControlFlow;
     }
 }
@@ -20,24 +20,40 @@ public class GenerateAst {
 
         final String outputDir = args[0];
         // Expressions evaluate to a value
-        defineAst(outputDir, "Expr", Arrays.asList(
-                "Assign     : Token name, Expr value",
+        // Fields after '|' are mutable and filled in by later passes (e.g. Resolver) instead of the Parser
+        final List<String> exprTypes = Arrays.asList(
+                // `[a, b, c]`
+                "Array      : Token bracket, List<Expr> elements",
+                "Assign     : Token name, Expr value | int depth = -1, int slot = -1",
                 "Binary     : Expr left, Token operator, Expr right",
                 "Call       : Expr callee, Token paren, List<Expr> arguments",
-                "Get        : Expr object, Token name",
+                // `a += x`: the operator token carries the arithmetic type (PLUS for `+=`...)
+                "CompoundAssign : Token name, Token operator, Expr value | int depth = -1, int slot = -1",
+                // `obj.a += x`. Reading and writing the field see different shapes, so each has its own cache
+                "CompoundSet    : Expr object, Token name, Token operator, Expr value | InlineCache getCache = new InlineCache(), InlineCache setCache = new InlineCache()",
+                "Get        : Expr object, Token name | InlineCache cache = new InlineCache()",
                 "Grouping   : Expr expression",
+                // `array[i]` and `array[i] = x`
+                "Index      : Expr object, Token bracket, Expr index",
+                "IndexSet   : Expr object, Token bracket, Expr index, Expr value",
+                // `i++`, `--i`: operator is the PLUS_PLUS/MINUS_MINUS token, `prefix` says which value the expression has
+                "Increment  : Token name, Token operator, boolean prefix | int depth = -1, int slot = -1",
+                "IncrementSet : Expr object, Token name, Token operator, boolean prefix | InlineCache getCache = new InlineCache(), InlineCache setCache = new InlineCache()",
                 "Literal    : Object value",
                 "Logical    : Expr left, Token operator, Expr right",
-                "Set        : Expr object, Token name, Expr value",
-                "Super      : Token keyword, Token method",
-                "This       : Token keyword",
+                "Set        : Expr object, Token name, Expr value | InlineCache cache = new InlineCache()",
+                "Super      : Token keyword, Token method | int depth = -1, int slot = -1",
+                "This       : Token keyword | int depth = -1, int slot = -1",
                 "Unary      : Token operator, Expr right",
-                "Variable   : Token name"
-        ));
+                "Variable   : Token name | int depth = -1, int slot = -1"
+        );
+        defineAst(outputDir, "Expr", exprTypes, "");
 
         // Statements control execution
-        defineAst(outputDir, "Stmt", Arrays.asList(
-                "Block          : List<Stmt> statements",
+        final List<String> stmtTypes = Arrays.asList(
+                // Set by the Resolver: `scoped` when the block declares something and needs its own environment,
+                // `captured` when a function or class inside it could keep that environment alive after the block
+                "Block          : List<Stmt> statements | boolean scoped = true, boolean captured = true",
                 "Class          : Token name, Expr.Variable superclass, List<Stmt.Function> methods",
                 "Expression     : Expr expression",
                 "Function       : Token name, List<Token> params, List<Stmt> body",
@@ -48,12 +64,297 @@ public class GenerateAst {
                 "Break          : Token keyword",
                 "Continue       : Token keyword",
                 "Var            : Token name, Expr initializer"
-        ));
+        );
+        // Mutable fields every statement has: the line it starts on, set by the Parser
+        final String stmtFields = "int line = 0";
+        defineAst(outputDir, "Stmt", stmtTypes, stmtFields);
+
+        // Binary form of a resolved tree, used by the .loxc cache
+        defineWriter(outputDir, exprTypes, stmtTypes, stmtFields);
+        defineReader(outputDir, exprTypes, stmtTypes, stmtFields);
+    }
+
+    // One AST type from the grammar above, split into constructor fields and mutable fields (type, name)
+    private record NodeType(String className, List<Map.Entry<String, String>> fields, List<Map.Entry<String, String>> mutableFields) {
+
+        // The node's own mutable fields, then the ones its base class gives every node
+        List<Map.Entry<String, String>> mutableFields(final String baseFields) {
+            return Stream.concat(mutableFields.stream(), entries(baseFields).stream()).toList();
+        }
+
+        static NodeType parse(final String type) {
+            final String[] grammar = type.split(":");
+            final String[] fields = grammar[1].split("\\|");
+            return new NodeType(grammar[0].trim(), entries(fields[0]), fields.length > 1 ? entries(fields[1]) : List.of());
+        }
+
+        // "Token name, int depth = -1" -> [Token=name, int=depth]
+        private static List<Map.Entry<String, String>> entries(final String fieldList) {
+            return Arrays.stream(fieldList.split(","))
+                    .map(String::strip)
+                    .filter(f -> !f.isEmpty())
+                    .map(f -> {
+                        final String[] parts = f.split("\\s+");
+                        return Map.entry(parts[0], parts[1]);
+                    })
+                    .toList();
+        }
+    }
+
+    // Changes whenever the node definitions do, so trees written by an older layout are never read back
+    private static String format(final List<String> exprTypes, final List<String> stmtTypes, final String stmtFields) {
+        final String definitions = String.join("\n", exprTypes) + "\n" + String.join("\n", stmtTypes) + "\n" + stmtFields;
+        return Integer.toHexString(definitions.replaceAll("\\s+", " ").hashCode());
+    }
+
+    private static void defineWriter(final String outputDir,
+                                     final List<String> exprTypes,
+                                     final List<String> stmtTypes,
+                                     final String stmtFields) throws IOException {
+        final Path file = Paths.get(outputDir, "com", "craftinginterpreters", "lox", "ast", "AstWriter.java");
+
+        try (final BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            writer.write("""
+                    package com.craftinginterpreters.lox.ast;
+
+                    import com.craftinginterpreters.lox.cache.AstOutput;
+                    import com.craftinginterpreters.lox.common.token.Token;
+
+                    import java.util.List;
+
+                    // Writes a resolved tree: a tag per node (0 for null), then its fields in declaration order.
+                    // Mutable fields filled in by the Resolver are written too, caches are not.
+                    public final class AstWriter implements Expr.Visitor<Void>, Stmt.Visitor<Void> {
+
+                    \tpublic static final String FORMAT = "%s";
+
+                    \tprivate final AstOutput out;
+
+                    \tpublic AstWriter(final AstOutput out) {
+                    \t\tthis.out = out;
+                    \t}
+
+                    \tpublic void write(final List<Stmt> statements) {
+                    \t\twriteStmts(statements);
+                    \t}
+
+                    \tprivate void write(final Expr expr) {
+                    \t\tif (expr == null) {
+                    \t\t\tout.writeTag(0);
+                    \t\t} else {
+                    \t\t\texpr.accept(this);
+                    \t\t}
+                    \t}
+
+                    \tprivate void write(final Stmt stmt) {
+                    \t\tif (stmt == null) {
+                    \t\t\tout.writeTag(0);
+                    \t\t} else {
+                    \t\t\tstmt.accept(this);
+                    \t\t}
+                    \t}
+
+                    \tprivate void writeExprs(final List<? extends Expr> exprs) {
+                    \t\tout.writeInt(exprs.size());
+                    \t\tfor (final Expr expr : exprs) write(expr);
+                    \t}
+
+                    \tprivate void writeStmts(final List<? extends Stmt> stmts) {
+                    \t\tout.writeInt(stmts.size());
+                    \t\tfor (final Stmt stmt : stmts) write(stmt);
+                    \t}
+
+                    \tprivate void writeTokens(final List<Token> tokens) {
+                    \t\tout.writeInt(tokens.size());
+                    \t\tfor (final Token token : tokens) out.writeToken(token);
+                    \t}
+                    """.formatted(format(exprTypes, stmtTypes, stmtFields)));
+
+            defineWriterVisits(writer, "Expr", exprTypes, "");
+            defineWriterVisits(writer, "Stmt", stmtTypes, stmtFields);
+
+            writer.write("}");
+            writer.newLine();
+        }
+    }
+
+    private static void defineWriterVisits(final BufferedWriter writer,
+                                           final String baseName,
+                                           final List<String> types,
+                                           final String baseFields) throws IOException {
+        for (int i = 0; i < types.size(); i++) {
+            final NodeType type = NodeType.parse(types.get(i));
+            final String node = baseName.toLowerCase(Locale.ROOT);
+
+            writer.newLine();
+            writer.write("\t@Override");
+            writer.newLine();
+            writer.write("\tpublic Void visit%s%s(final %s.%s %s) {".formatted(type.className(), baseName, baseName, type.className(), node));
+            writer.newLine();
+            writer.write("\t\tout.writeTag(%d);".formatted(i + 1));
+            writer.newLine();
+            for (final Map.Entry<String, String> field : type.fields()) {
+                writer.write("\t\t%s;".formatted(writeField(field.getKey(), "%s.%s".formatted(node, field.getValue()))));
+                writer.newLine();
+            }
+            for (final Map.Entry<String, String> field : type.mutableFields(baseFields)) {
+                final String write = writeField(field.getKey(), "%s.%s".formatted(node, field.getValue()));
+                if (write == null) continue;
+                writer.write("\t\t%s;".formatted(write));
+                writer.newLine();
+            }
+            writer.write("\t\treturn null;");
+            writer.newLine();
+            writer.write("\t}");
+            writer.newLine();
+        }
+    }
+
+    // Statement writing one field of the given type, or null for fields that aren't serialized
+    private static String writeField(final String type, final String value) {
+        return switch (type) {
+            case "Token" -> "out.writeToken(%s)".formatted(value);
+            case "Object" -> "out.writeValue(%s)".formatted(value);
+            case "int" -> "out.writeInt(%s)".formatted(value);
+            case "boolean" -> "out.writeBoolean(%s)".formatted(value);
+            case "List<Token>" -> "writeTokens(%s)".formatted(value);
+            default -> {
+                if (type.startsWith("List<Expr")) yield "writeExprs(%s)".formatted(value);
+                if (type.startsWith("List<Stmt")) yield "writeStmts(%s)".formatted(value);
+                if (type.startsWith("Expr") || type.startsWith("Stmt")) yield "write(%s)".formatted(value);
+                yield null;
+            }
+        };
+    }
+
+    private static void defineReader(final String outputDir,
+                                     final List<String> exprTypes,
+                                     final List<String> stmtTypes,
+                                     final String stmtFields) throws IOException {
+        final Path file = Paths.get(outputDir, "com", "craftinginterpreters", "lox", "ast", "AstReader.java");
+
+        try (final BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            writer.write("""
+                    package com.craftinginterpreters.lox.ast;
+
+                    import com.craftinginterpreters.lox.cache.AstInput;
+                    import com.craftinginterpreters.lox.common.token.Token;
+
+                    import java.util.ArrayList;
+                    import java.util.List;
+
+                    // Reads back what AstWriter wrote, field for field in the same order
+                    public final class AstReader {
+
+                    \tprivate final AstInput in;
+
+                    \tpublic AstReader(final AstInput in) {
+                    \t\tthis.in = in;
+                    \t}
+
+                    \tpublic List<Stmt> read() {
+                    \t\treturn readStmts(Stmt.class);
+                    \t}
+
+                    \tprivate <T extends Expr> List<T> readExprs(final Class<T> type) {
+                    \t\tfinal int size = in.readInt();
+                    \t\tfinal List<T> exprs = new ArrayList<>(size);
+                    \t\tfor (int i = 0; i < size; i++) exprs.add(type.cast(readExpr()));
+                    \t\treturn exprs;
+                    \t}
+
+                    \tprivate <T extends Stmt> List<T> readStmts(final Class<T> type) {
+                    \t\tfinal int size = in.readInt();
+                    \t\tfinal List<T> stmts = new ArrayList<>(size);
+                    \t\tfor (int i = 0; i < size; i++) stmts.add(type.cast(readStmt()));
+                    \t\treturn stmts;
+                    \t}
+
+                    \tprivate List<Token> readTokens() {
+                    \t\tfinal int size = in.readInt();
+                    \t\tfinal List<Token> tokens = new ArrayList<>(size);
+                    \t\tfor (int i = 0; i < size; i++) tokens.add(in.readToken());
+                    \t\treturn tokens;
+                    \t}
+                    """);
+
+            defineReaderSwitch(writer, "Expr", exprTypes, "");
+            defineReaderSwitch(writer, "Stmt", stmtTypes, stmtFields);
+
+            writer.write("}");
+            writer.newLine();
+        }
+    }
+
+    private static void defineReaderSwitch(final BufferedWriter writer,
+                                           final String baseName,
+                                           final List<String> types,
+                                           final String baseFields) throws IOException {
+        writer.newLine();
+        writer.write("\tprivate %s read%s() {".formatted(baseName, baseName));
+        writer.newLine();
+        writer.write("\t\tfinal int tag = in.readTag();");
+        writer.newLine();
+        writer.write("\t\treturn switch (tag) {");
+        writer.newLine();
+        writer.write("\t\t\tcase 0 -> null;");
+        writer.newLine();
+
+        for (int i = 0; i < types.size(); i++) {
+            final NodeType type = NodeType.parse(types.get(i));
+            final String arguments = type.fields().stream()
+                    .map(field -> readField(field.getKey()))
+                    .collect(Collectors.joining(", "));
+
+            writer.write("\t\t\tcase %d -> {".formatted(i + 1));
+            writer.newLine();
+            writer.write("\t\t\t\tfinal %s.%s node = new %s.%s(%s);".formatted(baseName, type.className(), baseName, type.className(), arguments));
+            writer.newLine();
+            for (final Map.Entry<String, String> field : type.mutableFields(baseFields)) {
+                if (writeField(field.getKey(), "") == null) continue;
+                writer.write("\t\t\t\tnode.%s = %s;".formatted(field.getValue(), readField(field.getKey())));
+                writer.newLine();
+            }
+            writer.write("\t\t\t\tyield node;");
+            writer.newLine();
+            writer.write("\t\t\t}");
+            writer.newLine();
+        }
+
+        writer.write("\t\t\tdefault -> throw new IllegalStateException(\"Unknown %s tag \" + tag);".formatted(baseName));
+        writer.newLine();
+        writer.write("\t\t};");
+        writer.newLine();
+        writer.write("\t}");
+        writer.newLine();
+    }
+
+    // Expression reading one field of the given type; arguments are evaluated left to right, in write order
+    private static String readField(final String type) {
+        return switch (type) {
+            case "Token" -> "in.readToken()";
+            case "Object" -> "in.readValue()";
+            case "int" -> "in.readInt()";
+            case "boolean" -> "in.readBoolean()";
+            case "List<Token>" -> "readTokens()";
+            case "Expr" -> "readExpr()";
+            case "Stmt" -> "readStmt()";
+            default -> {
+                if (type.startsWith("List<")) {
+                    final String element = type.substring("List<".length(), type.length() - 1);
+                    yield "read%ss(%s.class)".formatted(element.startsWith("Expr") ? "Expr" : "Stmt", element);
+                }
+                if (type.startsWith("Expr.")) yield "(%s) readExpr()".formatted(type);
+                if (type.startsWith("Stmt.")) yield "(%s) readStmt()".formatted(type);
+                throw new IllegalArgumentException("Don't know how to read a " + type);
+            }
+        };
     }
 
     private static void defineAst(final String outputDir,
                                   final String baseName,
-                                  final List<String> types) throws IOException {
+                                  final List<String> types,
+                                  final String baseFields) throws IOException {
 
         Path dir = Paths.get(outputDir, "com", "craftinginterpreters", "lox", "ast");
         Files.createDirectories(dir); // idempotent
@@ -65,6 +366,8 @@ public class GenerateAst {
             writer.write("package com.craftinginterpreters.lox.ast;");
             writer.newLine(); writer.newLine();
 
+            writer.write("import com.craftinginterpreters.lox.callables.classes.InlineCache;");
+            writer.newLine();
             writer.write("import com.craftinginterpreters.lox.common.token.Token;");
             writer.newLine(); writer.newLine();
 
@@ -76,6 +379,14 @@ public class GenerateAst {
 
             defineVisitorInterface(writer, baseName, types);
 
+            if (!baseFields.isBlank()) {
+                writer.newLine();
+                for (final String field : baseFields.split(",")) {
+                    writer.write("\tpublic %s;".formatted(field.strip()));
+                    writer.newLine();
+                }
+            }
+
             // Adds base accept() method
             writer.newLine();
             writer.write("\tpublic abstract <R> R accept(Visitor<R> visitor);");
@@ -86,8 +397,9 @@ public class GenerateAst {
                 final List<String> grammar = Stream.of(type.split(":")).map(String::trim).toList();
                 // Dirty way to get the strings
                 final String className = grammar.getFirst().trim();
-                final String fields = grammar.getLast().trim();
-                defineType(writer, baseName, className, fields);
+                final List<String> fields = Stream.of(grammar.getLast().split("\\|")).map(String::trim).toList();
+                final String mutableFields = fields.size() > 1 ? fields.getLast() : "";
+                defineType(writer, baseName, className, fields.getFirst(), mutableFields);
             }
 
             writer.write("}");
@@ -119,7 +431,8 @@ public class GenerateAst {
     private static void defineType(final BufferedWriter writer,
                                    final String baseName,
                                    final String className,
-                                   final String fieldList) throws IOException {
+                                   final String fieldList,
+                                   final String mutableFieldList) throws IOException {
 
         writer.newLine();
         writer.write("\tpublic static class %s extends %s {".formatted(className, baseName));
@@ -139,6 +452,14 @@ public class GenerateAst {
             writer.write("\t\tpublic final %s %s;".formatted(entry.getKey(), entry.getValue()));
             writer.newLine();
         }
+
+        // Mutable fields with their initial values, e.g. "int depth = -1"
+        if (!mutableFieldList.isBlank()) {
+            for (final String field : mutableFieldList.split(",")) {
+                writer.write("\t\tpublic %s;".formatted(field.strip()));
+                writer.newLine();
+            }
+        }
         writer.newLine();
 
         // Constructor
@@ -0,0 +1,9 @@
+package com.craftinginterpreters.lox.vm;
+
+final class CallFrame {
+
+    ObjClosure closure;
+    int ip;
+    // Stack index of slot 0 (the callee, or `this` for methods)
+    int base;
+}
@@ -0,0 +1,65 @@
+package com.craftinginterpreters.lox.vm;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Growable code array and constant pool, used while a function is being compiled.
+final class Chunk {
+
+    static final int MAX_CONSTANTS = 0xFFFF;
+
+    private byte[] code = new byte[64];
+    private int count = 0;
+    private final List<Object> constants = new ArrayList<>();
+    // Numbers and strings are immutable, so equal ones can share a constant
+    private final Map<Object, Integer> constantIndex = new HashMap<>();
+
+    void write(final int value) {
+        if (count == code.length) {
+            code = Arrays.copyOf(code, count * 2);
+        }
+        code[count++] = (byte) value;
+    }
+
+    void writeShort(final int value) {
+        write((value >> 8) & 0xFF);
+        write(value & 0xFF);
+    }
+
+    void patchShort(final int offset, final int value) {
+        code[offset] = (byte) ((value >> 8) & 0xFF);
+        code[offset + 1] = (byte) (value & 0xFF);
+    }
+
+    int count() {
+        return count;
+    }
+
+    // Returns -1 once the pool is full
+    int addConstant(final Object value) {
+        if (value instanceof Double || value instanceof String) {
+            final Integer existing = constantIndex.get(value);
+            if (existing != null) return existing;
+        }
+
+        if (constants.size() > MAX_CONSTANTS) return -1;
+
+        constants.add(value);
+        final int index = constants.size() - 1;
+        if (value instanceof Double || value instanceof String) {
+            constantIndex.put(value, index);
+        }
+        return index;
+    }
+
+    byte[] code() {
+        return Arrays.copyOf(code, count);
+    }
+
+    Object[] constants() {
+        return constants.toArray();
+    }
+}
@@ -0,0 +1,761 @@
+package com.craftinginterpreters.lox.vm;
+
+import com.craftinginterpreters.lox.ast.Expr;
+import com.craftinginterpreters.lox.ast.Stmt;
+import com.craftinginterpreters.lox.common.ProblemReporter;
+import com.craftinginterpreters.lox.common.token.Token;
+import com.craftinginterpreters.lox.common.token.TokenType;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Single pass over the resolved AST that emits bytecode.
+// The Resolver has already reported scoping errors, so this only tracks what the VM needs:
+// stack slots for locals, upvalues for captured variables and jump targets for loops.
+final class Compiler implements Expr.Visitor<Void>, Stmt.Visitor<Void> {
+
+    private static final int MAX_LOCALS = 256;
+    private static final int MAX_UPVALUES = 256;
+    private static final int MAX_JUMP = 0xFFFF;
+    private static final int MAX_ELEMENTS = 0xFFFF;
+
+    private enum FunctionType {
+        FUNCTION,
+        INITIALIZER,
+        METHOD,
+        SCRIPT
+    }
+
+    private static final class Local {
+        final String name;
+        final int depth;
+        boolean isCaptured = false;
+
+        Local(final String name, final int depth) {
+            this.name = name;
+            this.depth = depth;
+        }
+    }
+
+    private record Upvalue(int index, boolean isLocal) { }
+
+    private static final class Loop {
+        final Loop enclosing;
+        final int start;
+        final int scopeDepth;
+        final List<Integer> breakJumps = new ArrayList<>();
+
+        Loop(final Loop enclosing, final int start, final int scopeDepth) {
+            this.enclosing = enclosing;
+            this.start = start;
+            this.scopeDepth = scopeDepth;
+        }
+    }
+
+    // Per function being compiled. Nested function declarations push a new one.
+    private static final class FunctionState {
+        final FunctionState enclosing;
+        final FunctionType type;
+        final String name;
+        final int arity;
+        final Chunk chunk = new Chunk();
+        final List<Local> locals = new ArrayList<>();
+        final List<Upvalue> upvalues = new ArrayList<>();
+        int scopeDepth = 0;
+        Loop loop;
+
+        FunctionState(final FunctionState enclosing, final FunctionType type, final String name, final int arity) {
+            this.enclosing = enclosing;
+            this.type = type;
+            this.name = name;
+            this.arity = arity;
+
+            // Slot 0 holds the callee, which methods see as `this`
+            locals.add(new Local(type == FunctionType.FUNCTION || type == FunctionType.SCRIPT ? "" : "this", 0));
+        }
+    }
+
+    private final Globals globals;
+    private final ProblemReporter reporter;
+    private FunctionState current;
+    private Token lastToken;
+
+    Compiler(final Globals globals, final ProblemReporter reporter) {
+        this.globals = globals;
+        this.reporter = reporter;
+    }
+
+    ObjFunction compile(final List<Stmt> statements) {
+        current = new FunctionState(null, FunctionType.SCRIPT, null, 0);
+        for (final Stmt statement : statements) {
+            compile(statement);
+        }
+        return endFunction();
+    }
+
+    @Override
+    public Void visitBlockStmt(Stmt.Block stmt) {
+        beginScope();
+        for (final Stmt statement : stmt.statements) {
+            compile(statement);
+        }
+        endScope();
+        return null;
+    }
+
+    @Override
+    public Void visitClassStmt(Stmt.Class stmt) {
+        lastToken = stmt.name;
+        final int name = identifierConstant(stmt.name);
+        declareVariable(stmt.name);
+
+        emit(OpCode.CLASS);
+        emitShort(name);
+        defineVariable(stmt.name);
+
+        if (stmt.superclass != null) {
+            compile(stmt.superclass);
+
+            // Methods capture `super` like any other local
+            beginScope();
+            addLocal("super");
+
+            namedVariable(stmt.name);
+            emit(OpCode.INHERIT);
+        }
+
+        namedVariable(stmt.name);
+        for (final Stmt.Function method : stmt.methods) {
+            final FunctionType type = method.name.lexeme().equals("init")
+                    ? FunctionType.INITIALIZER
+                    : FunctionType.METHOD;
+            function(method, type);
+            emit(OpCode.METHOD);
+            emitShort(identifierConstant(method.name));
+        }
+        emit(OpCode.POP);
+
+        if (stmt.superclass != null) {
+            endScope();
+        }
+        return null;
+    }
+
+    @Override
+    public Void visitExpressionStmt(Stmt.Expression stmt) {
+        compile(stmt.expression);
+        emit(OpCode.POP);
+        return null;
+    }
+
+    @Override
+    public Void visitFunctionStmt(Stmt.Function stmt) {
+        declareVariable(stmt.name);
+        // Mark it initialized right away so the function can refer to itself
+        function(stmt, FunctionType.FUNCTION);
+        defineVariable(stmt.name);
+        return null;
+    }
+
+    @Override
+    public Void visitIfStmt(Stmt.If stmt) {
+        compile(stmt.condition);
+
+        final int thenJump = emitJump(OpCode.JUMP_IF_FALSE);
+        emit(OpCode.POP);
+        compile(stmt.thenBranch);
+
+        final int elseJump = emitJump(OpCode.JUMP);
+        patchJump(thenJump);
+        emit(OpCode.POP);
+
+        if (stmt.elseBranch != null) compile(stmt.elseBranch);
+        patchJump(elseJump);
+        return null;
+    }
+
+    @Override
+    public Void visitPrintStmt(Stmt.Print stmt) {
+        compile(stmt.expression);
+        emit(OpCode.PRINT);
+        return null;
+    }
+
+    @Override
+    public Void visitReturnStmt(Stmt.Return stmt) {
+        lastToken = stmt.keyword;
+        if (stmt.value == null || current.type == FunctionType.INITIALIZER) {
+            emitReturn();
+            return null;
+        }
+
+        compile(stmt.value);
+        emit(OpCode.RETURN);
+        return null;
+    }
+
+    @Override
+    public Void visitWhileStmt(Stmt.While stmt) {
+        final int loopStart = current.chunk.count();
+        current.loop = new Loop(current.loop, loopStart, current.scopeDepth);
+
+        compile(stmt.condition);
+        final int exitJump = emitJump(OpCode.JUMP_IF_FALSE);
+        emit(OpCode.POP);
+        compile(stmt.body);
+        emitLoop(loopStart);
+
+        patchJump(exitJump);
+        emit(OpCode.POP);
+
+        // `break` jumps past the condition's POP, it has nothing left on the stack
+        for (final int breakJump : current.loop.breakJumps) {
+            patchJump(breakJump);
+        }
+        current.loop = current.loop.enclosing;
+        return null;
+    }
+
+    @Override
+    public Void visitBreakStmt(Stmt.Break stmt) {
+        lastToken = stmt.keyword;
+        if (current.loop == null) {
+            reporter.error(stmt.keyword, "Can't break out of a function.");
+            return null;
+        }
+
+        discardLocals(current.loop.scopeDepth);
+        current.loop.breakJumps.add(emitJump(OpCode.JUMP));
+        return null;
+    }
+
+    @Override
+    public Void visitContinueStmt(Stmt.Continue stmt) {
+        lastToken = stmt.keyword;
+        if (current.loop == null) {
+            reporter.error(stmt.keyword, "Can't continue out of a function.");
+            return null;
+        }
+
+        discardLocals(current.loop.scopeDepth);
+        emitLoop(current.loop.start);
+        return null;
+    }
+
+    @Override
+    public Void visitVarStmt(Stmt.Var stmt) {
+        lastToken = stmt.name;
+        declareVariable(stmt.name);
+
+        if (stmt.initializer != null) {
+            compile(stmt.initializer);
+        } else {
+            emit(OpCode.NIL);
+        }
+
+        defineVariable(stmt.name);
+        return null;
+    }
+
+    @Override
+    public Void visitAssignExpr(Expr.Assign expr) {
+        compile(expr.value);
+        setVariable(expr.name);
+        return null;
+    }
+
+    @Override
+    public Void visitCompoundAssignExpr(Expr.CompoundAssign expr) {
+        namedVariable(expr.name);
+        compile(expr.value);
+        lastToken = expr.operator;
+        emit(arithmetic(expr.operator));
+        setVariable(expr.name);
+        return null;
+    }
+
+    @Override
+    public Void visitCompoundSetExpr(Expr.CompoundSet expr) {
+        compile(expr.object);
+        lastToken = expr.name;
+        emit(OpCode.DUP_PROPERTY);
+        emitShort(identifierConstant(expr.name));
+        compile(expr.value);
+        lastToken = expr.operator;
+        emit(arithmetic(expr.operator));
+        lastToken = expr.name;
+        emit(OpCode.SET_PROPERTY);
+        emitShort(identifierConstant(expr.name));
+        return null;
+    }
+
+    private static byte arithmetic(final Token operator) {
+        return switch (operator.type()) {
+            case PLUS -> OpCode.ADD;
+            case MINUS -> OpCode.SUBTRACT;
+            case STAR -> OpCode.MULTIPLY;
+            case SLASH -> OpCode.DIVIDE;
+            default -> throw new IllegalStateException("Not a compound assignment operator: " + operator);
+        };
+    }
+
+    private void setVariable(final Token token) {
+        lastToken = token;
+
+        final String name = token.lexeme();
+        int arg = resolveLocal(current, name);
+        if (arg != -1) {
+            emit(OpCode.SET_LOCAL);
+            emit(arg);
+        } else if ((arg = resolveUpvalue(current, name)) != -1) {
+            emit(OpCode.SET_UPVALUE);
+            emit(arg);
+        } else {
+            emit(OpCode.SET_GLOBAL);
+            emitShort(globalIndex(token, name));
+        }
+    }
+
+    @Override
+    public Void visitBinaryExpr(Expr.Binary expr) {
+        compile(expr.left);
+        compile(expr.right);
+        lastToken = expr.operator;
+
+        switch (expr.operator.type()) {
+            case GREATER -> emit(OpCode.GREATER);
+            case GREATER_EQUAL -> emit(OpCode.GREATER_EQUAL);
+            case LESS -> emit(OpCode.LESS);
+            case LESS_EQUAL -> emit(OpCode.LESS_EQUAL);
+            case MODULUS -> emit(OpCode.MODULO);
+            case MINUS -> emit(OpCode.SUBTRACT);
+            case PLUS -> emit(OpCode.ADD);
+            case SLASH -> emit(OpCode.DIVIDE);
+            case STAR -> emit(OpCode.MULTIPLY);
+            case BANG_EQUAL -> emit(OpCode.NOT_EQUAL);
+            case EQUAL_EQUAL -> emit(OpCode.EQUAL);
+            default -> {
+                // Same as the Interpreter: an unknown operator evaluates to nil
+                emit(OpCode.POP);
+                emit(OpCode.POP);
+                emit(OpCode.NIL);
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public Void visitArrayExpr(Expr.Array expr) {
+        for (final Expr element : expr.elements) {
+            compile(element);
+        }
+        lastToken = expr.bracket;
+        if (expr.elements.size() > MAX_ELEMENTS) {
+            reporter.error(expr.bracket, "Too many elements in one array literal.");
+        }
+        emit(OpCode.ARRAY);
+        emitShort(expr.elements.size() & MAX_ELEMENTS);
+        return null;
+    }
+
+    @Override
+    public Void visitCallExpr(Expr.Call expr) {
+        // obj.method(args) and super.method(args) skip creating a bound method
+        if (expr.callee instanceof Expr.Get get) {
+            compile(get.object);
+            compileArguments(expr);
+            lastToken = get.name;
+            emit(OpCode.INVOKE);
+            emitShort(identifierConstant(get.name));
+            emit(expr.arguments.size());
+            return null;
+        }
+
+        if (expr.callee instanceof Expr.Super superExpr) {
+            namedVariable(superExpr.keyword, "this");
+            compileArguments(expr);
+            namedVariable(superExpr.keyword, "super");
+            lastToken = superExpr.method;
+            emit(OpCode.SUPER_INVOKE);
+            emitShort(identifierConstant(superExpr.method));
+            emit(expr.arguments.size());
+            return null;
+        }
+
+        compile(expr.callee);
+        compileArguments(expr);
+        lastToken = expr.paren;
+        emit(OpCode.CALL);
+        emit(expr.arguments.size());
+        return null;
+    }
+
+    private void compileArguments(final Expr.Call expr) {
+        for (final Expr argument : expr.arguments) {
+            compile(argument);
+        }
+    }
+
+    @Override
+    public Void visitGetExpr(Expr.Get expr) {
+        compile(expr.object);
+        lastToken = expr.name;
+        emit(OpCode.GET_PROPERTY);
+        emitShort(identifierConstant(expr.name));
+        return null;
+    }
+
+    @Override
+    public Void visitGroupingExpr(Expr.Grouping expr) {
+        compile(expr.expression);
+        return null;
+    }
+
+    @Override
+    public Void visitIndexExpr(Expr.Index expr) {
+        compile(expr.object);
+        compile(expr.index);
+        lastToken = expr.bracket;
+        emit(OpCode.GET_INDEX);
+        return null;
+    }
+
+    @Override
+    public Void visitIndexSetExpr(Expr.IndexSet expr) {
+        compile(expr.object);
+        compile(expr.index);
+        compile(expr.value);
+        lastToken = expr.bracket;
+        emit(OpCode.SET_INDEX);
+        return null;
+    }
+
+    @Override
+    public Void visitIncrementExpr(Expr.Increment expr) {
+        lastToken = expr.operator;
+
+        final String name = expr.name.lexeme();
+        int arg = resolveLocal(current, name);
+        if (arg != -1) {
+            emit(OpCode.INCREMENT_LOCAL);
+            emit(arg);
+        } else if ((arg = resolveUpvalue(current, name)) != -1) {
+            emit(OpCode.INCREMENT_UPVALUE);
+            emit(arg);
+        } else {
+            emit(OpCode.INCREMENT_GLOBAL);
+            emitShort(globalIndex(expr.name, name));
+        }
+        emit(incrementMode(expr.operator, expr.prefix));
+        return null;
+    }
+
+    @Override
+    public Void visitIncrementSetExpr(Expr.IncrementSet expr) {
+        compile(expr.object);
+        lastToken = expr.operator;
+        emit(OpCode.INCREMENT_PROPERTY);
+        emitShort(identifierConstant(expr.name));
+        emit(incrementMode(expr.operator, expr.prefix));
+        return null;
+    }
+
+    private static int incrementMode(final Token operator, final boolean prefix) {
+        return (operator.type() == TokenType.MINUS_MINUS ? OpCode.DECREMENT : 0) | (prefix ? 0 : OpCode.POSTFIX);
+    }
+
+    @Override
+    public Void visitLiteralExpr(Expr.Literal expr) {
+        if (expr.value == null) {
+            emit(OpCode.NIL);
+        } else if (expr.value.equals(Boolean.TRUE)) {
+            emit(OpCode.TRUE);
+        } else if (expr.value.equals(Boolean.FALSE)) {
+            emit(OpCode.FALSE);
+        } else {
+            emit(OpCode.CONSTANT);
+            emitShort(makeConstant(expr.value));
+        }
+        return null;
+    }
+
+    @Override
+    public Void visitLogicalExpr(Expr.Logical expr) {
+        compile(expr.left);
+        lastToken = expr.operator;
+
+        if (expr.operator.type() == TokenType.OR) {
+            final int elseJump = emitJump(OpCode.JUMP_IF_FALSE);
+            final int endJump = emitJump(OpCode.JUMP);
+            patchJump(elseJump);
+            emit(OpCode.POP);
+            compile(expr.right);
+            patchJump(endJump);
+        } else {
+            final int endJump = emitJump(OpCode.JUMP_IF_FALSE);
+            emit(OpCode.POP);
+            compile(expr.right);
+            patchJump(endJump);
+        }
+        return null;
+    }
+
+    @Override
+    public Void visitSetExpr(Expr.Set expr) {
+        compile(expr.object);
+        compile(expr.value);
+        lastToken = expr.name;
+        emit(OpCode.SET_PROPERTY);
+        emitShort(identifierConstant(expr.name));
+        return null;
+    }
+
+    @Override
+    public Void visitSuperExpr(Expr.Super expr) {
+        namedVariable(expr.keyword, "this");
+        namedVariable(expr.keyword, "super");
+        lastToken = expr.method;
+        emit(OpCode.GET_SUPER);
+        emitShort(identifierConstant(expr.method));
+        return null;
+    }
+
+    @Override
+    public Void visitThisExpr(Expr.This expr) {
+        namedVariable(expr.keyword, "this");
+        return null;
+    }
+
+    @Override
+    public Void visitUnaryExpr(Expr.Unary expr) {
+        compile(expr.right);
+        lastToken = expr.operator;
+
+        switch (expr.operator.type()) {
+            case BANG -> emit(OpCode.NOT);
+            case MINUS -> emit(OpCode.NEGATE);
+            default -> {
+                emit(OpCode.POP);
+                emit(OpCode.NIL);
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public Void visitVariableExpr(Expr.Variable expr) {
+        namedVariable(expr.name);
+        return null;
+    }
+
+    private void compile(final Stmt stmt) {
+        stmt.accept(this);
+    }
+
+    private void compile(final Expr expr) {
+        expr.accept(this);
+    }
+
+    private void function(final Stmt.Function stmt, final FunctionType type) {
+        lastToken = stmt.name;
+        current = new FunctionState(current, type, stmt.name.lexeme(), stmt.params.size());
+        beginScope();
+
+        for (final Token param : stmt.params) {
+            declareVariable(param);
+            defineVariable(param);
+        }
+        for (final Stmt statement : stmt.body) {
+            compile(statement);
+        }
+
+        // No endScope(): returning discards the whole frame anyway
+        final FunctionState compiled = current;
+        final ObjFunction function = endFunction();
+
+        emit(OpCode.CLOSURE);
+        emitShort(makeConstant(function));
+        for (final Upvalue upvalue : compiled.upvalues) {
+            emit(upvalue.isLocal() ? 1 : 0);
+            emit(upvalue.index());
+        }
+    }
+
+    private ObjFunction endFunction() {
+        emitReturn();
+        final FunctionState state = current;
+        current = state.enclosing;
+        return new ObjFunction(state.name, state.arity, state.upvalues.size(), state.chunk.code(), state.chunk.constants());
+    }
+
+    private void beginScope() {
+        current.scopeDepth++;
+    }
+
+    private void endScope() {
+        current.scopeDepth--;
+
+        final List<Local> locals = current.locals;
+        while (!locals.isEmpty() && locals.getLast().depth > current.scopeDepth) {
+            emit(locals.getLast().isCaptured ? OpCode.CLOSE_UPVALUE : OpCode.POP);
+            locals.removeLast();
+        }
+    }
+
+    // Pops (without forgetting) every local deeper than the given scope, for break/continue
+    private void discardLocals(final int depth) {
+        final List<Local> locals = current.locals;
+        for (int i = locals.size() - 1; i >= 0 && locals.get(i).depth > depth; i--) {
+            emit(locals.get(i).isCaptured ? OpCode.CLOSE_UPVALUE : OpCode.POP);
+        }
+    }
+
+    private void declareVariable(final Token name) {
+        if (current.scopeDepth == 0) return;
+        addLocal(name.lexeme());
+    }
+
+    private void addLocal(final String name) {
+        if (current.locals.size() == MAX_LOCALS) {
+            reporter.error(lastToken, "Too many local variables in function.");
+            return;
+        }
+        current.locals.add(new Local(name, current.scopeDepth));
+    }
+
+    private void defineVariable(final Token name) {
+        // Locals are already in their slot on the stack
+        if (current.scopeDepth > 0) return;
+
+        emit(OpCode.DEFINE_GLOBAL);
+        emitShort(globalIndex(name, name.lexeme()));
+    }
+
+    private void namedVariable(final Token name) {
+        namedVariable(name, name.lexeme());
+    }
+
+    private void namedVariable(final Token token, final String name) {
+        lastToken = token;
+
+        int arg = resolveLocal(current, name);
+        if (arg != -1) {
+            emit(OpCode.GET_LOCAL);
+            emit(arg);
+        } else if ((arg = resolveUpvalue(current, name)) != -1) {
+            emit(OpCode.GET_UPVALUE);
+            emit(arg);
+        } else {
+            emit(OpCode.GET_GLOBAL);
+            emitShort(globalIndex(token, name));
+        }
+    }
+
+    private int resolveLocal(final FunctionState state, final String name) {
+        for (int i = state.locals.size() - 1; i >= 0; i--) {
+            if (state.locals.get(i).name.equals(name)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private int resolveUpvalue(final FunctionState state, final String name) {
+        if (state.enclosing == null) return -1;
+
+        final int local = resolveLocal(state.enclosing, name);
+        if (local != -1) {
+            state.enclosing.locals.get(local).isCaptured = true;
+            return addUpvalue(state, local, true);
+        }
+
+        final int upvalue = resolveUpvalue(state.enclosing, name);
+        if (upvalue != -1) {
+            return addUpvalue(state, upvalue, false);
+        }
+
+        return -1;
+    }
+
+    private int addUpvalue(final FunctionState state, final int index, final boolean isLocal) {
+        for (int i = 0; i < state.upvalues.size(); i++) {
+            final Upvalue upvalue = state.upvalues.get(i);
+            if (upvalue.index() == index && upvalue.isLocal() == isLocal) {
+                return i;
+            }
+        }
+
+        if (state.upvalues.size() == MAX_UPVALUES) {
+            reporter.error(lastToken, "Too many closure variables in function.");
+            return 0;
+        }
+
+        state.upvalues.add(new Upvalue(index, isLocal));
+        return state.upvalues.size() - 1;
+    }
+
+    private int globalIndex(final Token token, final String name) {
+        final int index = globals.indexOf(name);
+        if (index > Chunk.MAX_CONSTANTS) {
+            reporter.error(token, "Too many global variables.");
+            return 0;
+        }
+        return index;
+    }
+
+    private int identifierConstant(final Token name) {
+        return makeConstant(name.lexeme());
+    }
+
+    private int makeConstant(final Object value) {
+        final int index = current.chunk.addConstant(value);
+        if (index == -1) {
+            reporter.error(lastToken, "Too many constants in one chunk.");
+            return 0;
+        }
+        return index;
+    }
+
+    private void emit(final int value) {
+        current.chunk.write(value);
+    }
+
+    private void emitShort(final int value) {
+        current.chunk.writeShort(value);
+    }
+
+    private void emitReturn() {
+        if (current.type == FunctionType.INITIALIZER) {
+            emit(OpCode.GET_LOCAL);
+            emit(0);
+        } else {
+            emit(OpCode.NIL);
+        }
+        emit(OpCode.RETURN);
+    }
+
+    private int emitJump(final byte instruction) {
+        emit(instruction);
+        emitShort(0xFFFF);
+        return current.chunk.count() - 2;
+    }
+
+    private void patchJump(final int offset) {
+        // -2 to adjust for the jump offset itself
+        final int jump = current.chunk.count() - offset - 2;
+        if (jump > MAX_JUMP) {
+            reporter.error(lastToken, "Too much code to jump over.");
+        }
+        current.chunk.patchShort(offset, jump);
+    }
+
+    private void emitLoop(final int loopStart) {
+        emit(OpCode.LOOP);
+
+        final int offset = current.chunk.count() - loopStart + 2;
+        if (offset > MAX_JUMP) {
+            reporter.error(lastToken, "Loop body too large.");
+        }
+        emitShort(offset);
+    }
+}
@@ -0,0 +1,43 @@
+package com.craftinginterpreters.lox.vm;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+// Globals are late bound, but their names are known at compile time.
+// The compiler turns each name into an index here so the VM never hashes a name at runtime.
+final class Globals {
+
+    static final Object UNDEFINED = new Object();
+
+    private final Map<String, Integer> indices = new HashMap<>();
+    String[] names = new String[64];
+    Object[] values = new Object[64];
+
+    Globals() {
+        Arrays.fill(values, UNDEFINED);
+    }
+
+    int indexOf(final String name) {
+        final Integer existing = indices.get(name);
+        if (existing != null) return existing;
+
+        final int index = indices.size();
+        if (index == values.length) {
+            names = Arrays.copyOf(names, index * 2);
+            values = Arrays.copyOf(values, index * 2);
+            Arrays.fill(values, index, values.length, UNDEFINED);
+        }
+        names[index] = name;
+        indices.put(name, index);
+        return index;
+    }
+
+    int size() {
+        return indices.size();
+    }
+
+    void define(final String name, final Object value) {
+        values[indexOf(name)] = value;
+    }
+}
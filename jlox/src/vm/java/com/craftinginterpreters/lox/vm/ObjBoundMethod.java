@@ -0,0 +1,17 @@
+package com.craftinginterpreters.lox.vm;
+
+final class ObjBoundMethod {
+
+    final Object receiver;
+    final ObjClosure method;
+
+    ObjBoundMethod(final Object receiver, final ObjClosure method) {
+        this.receiver = receiver;
+        this.method = method;
+    }
+
+    @Override
+    public String toString() {
+        return method.toString();
+    }
+}
@@ -0,0 +1,20 @@
+package com.craftinginterpreters.lox.vm;
+
+import java.util.HashMap;
+import java.util.Map;
+
+final class ObjClass {
+
+    final String name;
+    final Map<String, ObjClosure> methods = new HashMap<>();
+    ObjClosure initializer;
+
+    ObjClass(final String name) {
+        this.name = name;
+    }
+
+    @Override
+    public String toString() {
+        return "<Class#%s>".formatted(name);
+    }
+}
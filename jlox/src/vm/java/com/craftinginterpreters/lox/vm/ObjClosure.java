@@ -0,0 +1,17 @@
+package com.craftinginterpreters.lox.vm;
+
+final class ObjClosure {
+
+    final ObjFunction function;
+    final ObjUpvalue[] upvalues;
+
+    ObjClosure(final ObjFunction function) {
+        this.function = function;
+        this.upvalues = new ObjUpvalue[function.upvalueCount];
+    }
+
+    @Override
+    public String toString() {
+        return function.toString();
+    }
+}
@@ -0,0 +1,24 @@
+package com.craftinginterpreters.lox.vm;
+
+// Compiled code for one function declaration (or the top-level script).
+final class ObjFunction {
+
+    final String name;
+    final int arity;
+    final int upvalueCount;
+    final byte[] code;
+    final Object[] constants;
+
+    ObjFunction(final String name, final int arity, final int upvalueCount, final byte[] code, final Object[] constants) {
+        this.name = name;
+        this.arity = arity;
+        this.upvalueCount = upvalueCount;
+        this.code = code;
+        this.constants = constants;
+    }
+
+    @Override
+    public String toString() {
+        return name == null ? "<script>" : "<fn %s>".formatted(name);
+    }
+}
@@ -0,0 +1,16 @@
+package com.craftinginterpreters.lox.vm;
+
+// A captured variable. While open it points at a live stack slot, once closed it owns the value.
+// The stack can be reallocated when it grows, so open upvalues hold the slot index and not the array.
+final class ObjUpvalue {
+
+    final int slot;
+    boolean isOpen = true;
+    Object closed;
+    ObjUpvalue next;
+
+    ObjUpvalue(final int slot, final ObjUpvalue next) {
+        this.slot = slot;
+        this.next = next;
+    }
+}
@@ -0,0 +1,67 @@
+package com.craftinginterpreters.lox.vm;
+
+// One byte per instruction. Operands follow inline:
+// u8 for local/upvalue slots and argument counts, u16 for constants, globals and jump offsets.
+final class OpCode {
+
+    static final byte CONSTANT = 0;         // u16 constant
+    static final byte NIL = 1;
+    static final byte TRUE = 2;
+    static final byte FALSE = 3;
+    static final byte POP = 4;
+
+    static final byte GET_LOCAL = 5;        // u8 slot
+    static final byte SET_LOCAL = 6;        // u8 slot
+    static final byte GET_GLOBAL = 7;       // u16 global
+    static final byte DEFINE_GLOBAL = 8;    // u16 global
+    static final byte SET_GLOBAL = 9;       // u16 global
+    static final byte GET_UPVALUE = 10;     // u8 upvalue
+    static final byte SET_UPVALUE = 11;     // u8 upvalue
+    static final byte GET_PROPERTY = 12;    // u16 name
+    static final byte SET_PROPERTY = 13;    // u16 name
+    static final byte GET_SUPER = 14;       // u16 name
+
+    static final byte EQUAL = 15;
+    static final byte NOT_EQUAL = 16;
+    static final byte GREATER = 17;
+    static final byte GREATER_EQUAL = 18;
+    static final byte LESS = 19;
+    static final byte LESS_EQUAL = 20;
+    static final byte ADD = 21;
+    static final byte SUBTRACT = 22;
+    static final byte MULTIPLY = 23;
+    static final byte DIVIDE = 24;
+    static final byte MODULO = 25;
+    static final byte NOT = 26;
+    static final byte NEGATE = 27;
+
+    static final byte PRINT = 28;
+    static final byte JUMP = 29;            // u16 forward offset
+    static final byte JUMP_IF_FALSE = 30;   // u16 forward offset, leaves the condition on the stack
+    static final byte LOOP = 31;            // u16 backward offset
+    static final byte CALL = 32;            // u8 argument count
+    static final byte INVOKE = 33;          // u16 name, u8 argument count
+    static final byte SUPER_INVOKE = 34;    // u16 name, u8 argument count
+    static final byte CLOSURE = 35;         // u16 function, then (u8 isLocal, u8 index) per upvalue
+    static final byte CLOSE_UPVALUE = 36;
+    static final byte RETURN = 37;
+    static final byte CLASS = 38;           // u16 name
+    static final byte INHERIT = 39;
+    static final byte METHOD = 40;          // u16 name
+    static final byte DUP_PROPERTY = 41;    // u16 name, pushes the property and keeps the instance for a SET_PROPERTY
+    // `++`/`--` as one read-modify-write. The last operand is a u8 mode, see DECREMENT and POSTFIX.
+    static final byte INCREMENT_LOCAL = 42;     // u8 slot, u8 mode
+    static final byte INCREMENT_UPVALUE = 43;   // u8 upvalue, u8 mode
+    static final byte INCREMENT_GLOBAL = 44;    // u16 global, u8 mode
+    static final byte INCREMENT_PROPERTY = 45;  // u16 name, u8 mode, pops the instance
+    static final byte ARRAY = 46;           // u16 element count, pops the elements
+    static final byte GET_INDEX = 47;       // pops the array or map and the index
+    static final byte SET_INDEX = 48;       // pops the array or map, index and value, pushes the value
+
+    // Mode bits of the INCREMENT_* instructions
+    static final int DECREMENT = 1;
+    // The old value is left on the stack instead of the new one
+    static final int POSTFIX = 2;
+
+    private OpCode() { }
+}
@@ -0,0 +1,587 @@
+package com.craftinginterpreters.lox.vm;
+
+import com.craftinginterpreters.lox.Engine;
+import com.craftinginterpreters.lox.ast.Stmt;
+import com.craftinginterpreters.lox.callables.LoxCallable;
+import com.craftinginterpreters.lox.callables.functions.system.arrays.Len;
+import com.craftinginterpreters.lox.callables.functions.system.arrays.LoxArray;
+import com.craftinginterpreters.lox.callables.functions.system.arrays.Pop;
+import com.craftinginterpreters.lox.callables.functions.system.arrays.Push;
+import com.craftinginterpreters.lox.callables.functions.system.arrays.Slice;
+import com.craftinginterpreters.lox.callables.functions.system.maps.Contains;
+import com.craftinginterpreters.lox.callables.functions.system.maps.Get;
+import com.craftinginterpreters.lox.callables.functions.system.maps.Keys;
+import com.craftinginterpreters.lox.callables.functions.system.maps.LoxMap;
+import com.craftinginterpreters.lox.callables.functions.system.maps.NewMap;
+import com.craftinginterpreters.lox.callables.functions.system.maps.Put;
+import com.craftinginterpreters.lox.callables.functions.system.maps.Remove;
+import com.craftinginterpreters.lox.callables.functions.system.numbers.IsEven;
+import com.craftinginterpreters.lox.callables.functions.system.time.Clock;
+import com.craftinginterpreters.lox.common.ProblemReporter;
+import com.craftinginterpreters.lox.common.errors.RuntimeError;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static com.craftinginterpreters.lox.visitors.Interpreter.isEqual;
+import static com.craftinginterpreters.lox.visitors.Interpreter.isTruthy;
+import static com.craftinginterpreters.lox.visitors.Interpreter.stringify;
+
+// Stack based bytecode VM, modelled after clox.
+// Values are plain Java objects, same as the tree walker, so natives and printing are shared.
+public final class VM implements Engine {
+
+    private static final int FRAMES_MAX = 1 << 16;
+    private static final long MAX_EXACT_INTEGER = 1L << 53;
+
+    private final Globals globals = new Globals();
+
+    private Object[] stack = new Object[256];
+    private int sp = 0;
+
+    private CallFrame[] frames = new CallFrame[64];
+    private int frameCount = 0;
+
+    // Sorted by stack slot, highest first
+    private ObjUpvalue openUpvalues;
+
+    public VM() {
+        globals.define("clock", new Clock());
+        globals.define("isEven", new IsEven());
+        globals.define("len", new Len());
+        globals.define("push", new Push());
+        globals.define("pop", new Pop());
+        globals.define("slice", new Slice());
+        globals.define("map", new NewMap());
+        globals.define("get", new Get());
+        globals.define("put", new Put());
+        globals.define("remove", new Remove());
+        globals.define("contains", new Contains());
+        globals.define("keys", new Keys());
+    }
+
+    @Override
+    public void interpret(final List<Stmt> statements, final ProblemReporter reporter) {
+        final ObjFunction script = new Compiler(globals, reporter).compile(statements);
+        if (reporter.hasErrors()) return;
+
+        final ObjClosure closure = new ObjClosure(script);
+        try {
+            push(closure);
+            call(closure, 0);
+            run();
+        } catch (final RuntimeError error) {
+            reporter.runtimeError(error);
+        } finally {
+            // Globals survive between REPL lines, the stack never does
+            Arrays.fill(stack, 0, sp, null);
+            sp = 0;
+            frameCount = 0;
+            openUpvalues = null;
+        }
+    }
+
+    private void run() {
+        CallFrame frame = frames[frameCount - 1];
+        byte[] code = frame.closure.function.code;
+        Object[] constants = frame.closure.function.constants;
+        int base = frame.base;
+        int ip = frame.ip;
+
+        while (true) {
+            switch (code[ip++]) {
+                case OpCode.CONSTANT -> {
+                    push(constants[readShort(code, ip)]);
+                    ip += 2;
+                }
+                case OpCode.NIL -> push(null);
+                case OpCode.TRUE -> push(Boolean.TRUE);
+                case OpCode.FALSE -> push(Boolean.FALSE);
+                case OpCode.POP -> stack[--sp] = null;
+
+                case OpCode.GET_LOCAL -> push(stack[base + (code[ip++] & 0xFF)]);
+                case OpCode.SET_LOCAL -> stack[base + (code[ip++] & 0xFF)] = stack[sp - 1];
+                case OpCode.GET_GLOBAL -> {
+                    final int index = readShort(code, ip);
+                    ip += 2;
+                    final Object value = globals.values[index];
+                    if (value == Globals.UNDEFINED) {
+                        throw new RuntimeError("Undefined variable '%s'.".formatted(globals.names[index]));
+                    }
+                    push(value);
+                }
+                case OpCode.DEFINE_GLOBAL -> {
+                    globals.values[readShort(code, ip)] = pop();
+                    ip += 2;
+                }
+                case OpCode.SET_GLOBAL -> {
+                    final int index = readShort(code, ip);
+                    ip += 2;
+                    if (globals.values[index] == Globals.UNDEFINED) {
+                        throw new RuntimeError("Undefined variable '%s'.".formatted(globals.names[index]));
+                    }
+                    globals.values[index] = stack[sp - 1];
+                }
+                case OpCode.GET_UPVALUE -> {
+                    final ObjUpvalue upvalue = frame.closure.upvalues[code[ip++] & 0xFF];
+                    push(upvalue.isOpen ? stack[upvalue.slot] : upvalue.closed);
+                }
+                case OpCode.SET_UPVALUE -> {
+                    final ObjUpvalue upvalue = frame.closure.upvalues[code[ip++] & 0xFF];
+                    if (upvalue.isOpen) {
+                        stack[upvalue.slot] = stack[sp - 1];
+                    } else {
+                        upvalue.closed = stack[sp - 1];
+                    }
+                }
+                case OpCode.GET_PROPERTY -> {
+                    final String name = (String) constants[readShort(code, ip)];
+                    ip += 2;
+                    // Like the tree walker, reading a property off anything else gives nil
+                    stack[sp - 1] = stack[sp - 1] instanceof ObjInstance instance ? getProperty(instance, name) : null;
+                }
+                case OpCode.SET_PROPERTY -> {
+                    final String name = (String) constants[readShort(code, ip)];
+                    ip += 2;
+                    final Object value = pop();
+                    if (!(pop() instanceof ObjInstance instance)) {
+                        throw new RuntimeError("Only instances have fields.");
+                    }
+                    instance.fields.put(name, value);
+                    push(value);
+                }
+                case OpCode.DUP_PROPERTY -> {
+                    final String name = (String) constants[readShort(code, ip)];
+                    ip += 2;
+                    // `obj.a += x` fails up front on a non-instance, like the SET_PROPERTY it leads to
+                    if (!(stack[sp - 1] instanceof ObjInstance instance)) {
+                        throw new RuntimeError("Only instances have fields.");
+                    }
+                    push(getProperty(instance, name));
+                }
+                case OpCode.ARRAY -> {
+                    final int count = readShort(code, ip);
+                    ip += 2;
+                    final LoxArray array = new LoxArray(Arrays.asList(Arrays.copyOfRange(stack, sp - count, sp)));
+                    Arrays.fill(stack, sp - count, sp, null);
+                    sp -= count;
+                    push(array);
+                }
+                case OpCode.GET_INDEX -> {
+                    final Object index = pop();
+                    final Object target = pop();
+                    if (target instanceof LoxMap map) {
+                        push(map.get(null, index));
+                    } else {
+                        final LoxArray array = array(target);
+                        push(array.get(array.index(null, index)));
+                    }
+                }
+                case OpCode.SET_INDEX -> {
+                    final Object value = pop();
+                    final Object index = pop();
+                    final Object target = pop();
+                    if (target instanceof LoxMap map) {
+                        map.put(null, index, value);
+                    } else {
+                        final LoxArray array = array(target);
+                        array.set(array.index(null, index), value);
+                    }
+                    push(value);
+                }
+                case OpCode.INCREMENT_LOCAL -> {
+                    final int slot = base + (code[ip++] & 0xFF);
+                    final int mode = code[ip++];
+                    final Object old = stack[slot];
+                    final Object updated = incremented(old, mode);
+                    stack[slot] = updated;
+                    push((mode & OpCode.POSTFIX) != 0 ? old : updated);
+                }
+                case OpCode.INCREMENT_UPVALUE -> {
+                    final ObjUpvalue upvalue = frame.closure.upvalues[code[ip++] & 0xFF];
+                    final int mode = code[ip++];
+                    final Object old = upvalue.isOpen ? stack[upvalue.slot] : upvalue.closed;
+                    final Object updated = incremented(old, mode);
+                    if (upvalue.isOpen) {
+                        stack[upvalue.slot] = updated;
+                    } else {
+                        upvalue.closed = updated;
+                    }
+                    push((mode & OpCode.POSTFIX) != 0 ? old : updated);
+                }
+                case OpCode.INCREMENT_GLOBAL -> {
+                    final int index = readShort(code, ip);
+                    final int mode = code[ip + 2];
+                    ip += 3;
+                    final Object old = globals.values[index];
+                    if (old == Globals.UNDEFINED) {
+                        throw new RuntimeError("Undefined variable '%s'.".formatted(globals.names[index]));
+                    }
+                    final Object updated = incremented(old, mode);
+                    globals.values[index] = updated;
+                    push((mode & OpCode.POSTFIX) != 0 ? old : updated);
+                }
+                case OpCode.INCREMENT_PROPERTY -> {
+                    final String name = (String) constants[readShort(code, ip)];
+                    final int mode = code[ip + 2];
+                    ip += 3;
+                    if (!(pop() instanceof ObjInstance instance)) {
+                        throw new RuntimeError("Only instances have fields.");
+                    }
+                    final Object old = getProperty(instance, name);
+                    final Object updated = incremented(old, mode);
+                    instance.fields.put(name, updated);
+                    push((mode & OpCode.POSTFIX) != 0 ? old : updated);
+                }
+                case OpCode.GET_SUPER -> {
+                    final String name = (String) constants[readShort(code, ip)];
+                    ip += 2;
+                    final ObjClass superclass = (ObjClass) pop();
+                    final ObjClosure method = superclass.methods.get(name);
+                    if (method == null) {
+                        throw new RuntimeError("Undefined property '%s'.".formatted(name));
+                    }
+                    stack[sp - 1] = new ObjBoundMethod(stack[sp - 1], method);
+                }
+
+                case OpCode.EQUAL -> {
+                    final Object right = pop();
+                    stack[sp - 1] = isEqual(stack[sp - 1], right);
+                }
+                case OpCode.NOT_EQUAL -> {
+                    final Object right = pop();
+                    stack[sp - 1] = !isEqual(stack[sp - 1], right);
+                }
+                case OpCode.GREATER -> {
+                    checkNumberOperands();
+                    final double right = (double) pop();
+                    stack[sp - 1] = (double) stack[sp - 1] > right;
+                }
+                case OpCode.GREATER_EQUAL -> {
+                    checkNumberOperands();
+                    final double right = (double) pop();
+                    stack[sp - 1] = (double) stack[sp - 1] >= right;
+                }
+                case OpCode.LESS -> {
+                    checkNumberOperands();
+                    final double right = (double) pop();
+                    stack[sp - 1] = (double) stack[sp - 1] < right;
+                }
+                case OpCode.LESS_EQUAL -> {
+                    checkNumberOperands();
+                    final double right = (double) pop();
+                    stack[sp - 1] = (double) stack[sp - 1] <= right;
+                }
+                case OpCode.ADD -> {
+                    final Object right = pop();
+                    final Object left = stack[sp - 1];
+                    if (left instanceof Double a && right instanceof Double b) {
+                        stack[sp - 1] = a + b;
+                    } else if (left instanceof String a && right instanceof String b) {
+                        stack[sp - 1] = a.concat(b);
+                    } else if (left instanceof String || right instanceof String) {
+                        // Allows "scone" + 4 = "scone4"
+                        stack[sp - 1] = stringify(left) + stringify(right);
+                    } else {
+                        throw new RuntimeError("Operands must be two numbers or two strings.");
+                    }
+                }
+                case OpCode.SUBTRACT -> {
+                    checkNumberOperands();
+                    final double right = (double) pop();
+                    stack[sp - 1] = (double) stack[sp - 1] - right;
+                }
+                case OpCode.MULTIPLY -> {
+                    checkNumberOperands();
+                    final double right = (double) pop();
+                    stack[sp - 1] = (double) stack[sp - 1] * right;
+                }
+                case OpCode.DIVIDE -> {
+                    checkNumberOperands();
+                    final double right = (double) pop();
+                    final double result = (double) stack[sp - 1] / right;
+                    if (Double.isNaN(result)) throw new RuntimeError("0/0 is not not allowed.");
+                    stack[sp - 1] = result;
+                }
+                case OpCode.MODULO -> {
+                    checkNumberOperands();
+                    final double right = (double) pop();
+                    stack[sp - 1] = remainder((double) stack[sp - 1], right);
+                }
+                case OpCode.NOT -> stack[sp - 1] = !isTruthy(stack[sp - 1]);
+                case OpCode.NEGATE -> {
+                    if (!(stack[sp - 1] instanceof Double value)) {
+                        throw new RuntimeError("Operand must be a number.");
+                    }
+                    stack[sp - 1] = -value;
+                }
+
+                case OpCode.PRINT -> System.out.println(stringify(pop()));
+                case OpCode.JUMP -> ip += readShort(code, ip) + 2;
+                case OpCode.JUMP_IF_FALSE -> {
+                    if (isTruthy(stack[sp - 1])) {
+                        ip += 2;
+                    } else {
+                        ip += readShort(code, ip) + 2;
+                    }
+                }
+                case OpCode.LOOP -> ip -= readShort(code, ip) - 2;
+
+                case OpCode.CALL -> {
+                    final int argCount = code[ip++] & 0xFF;
+                    frame.ip = ip;
+                    callValue(stack[sp - argCount - 1], argCount);
+
+                    frame = frames[frameCount - 1];
+                    code = frame.closure.function.code;
+                    constants = frame.closure.function.constants;
+                    base = frame.base;
+                    ip = frame.ip;
+                }
+                case OpCode.INVOKE -> {
+                    final String name = (String) constants[readShort(code, ip)];
+                    final int argCount = code[ip + 2] & 0xFF;
+                    ip += 3;
+                    frame.ip = ip;
+                    invoke(name, argCount);
+
+                    frame = frames[frameCount - 1];
+                    code = frame.closure.function.code;
+                    constants = frame.closure.function.constants;
+                    base = frame.base;
+                    ip = frame.ip;
+                }
+                case OpCode.SUPER_INVOKE -> {
+                    final String name = (String) constants[readShort(code, ip)];
+                    final int argCount = code[ip + 2] & 0xFF;
+                    ip += 3;
+                    frame.ip = ip;
+                    final ObjClass superclass = (ObjClass) pop();
+                    final ObjClosure method = superclass.methods.get(name);
+                    if (method == null) {
+                        throw new RuntimeError("Undefined property '%s'.".formatted(name));
+                    }
+                    call(method, argCount);
+
+                    frame = frames[frameCount - 1];
+                    code = frame.closure.function.code;
+                    constants = frame.closure.function.constants;
+                    base = frame.base;
+                    ip = frame.ip;
+                }
+                case OpCode.CLOSURE -> {
+                    final ObjFunction function = (ObjFunction) constants[readShort(code, ip)];
+                    ip += 2;
+                    final ObjClosure closure = new ObjClosure(function);
+                    for (int i = 0; i < closure.upvalues.length; i++) {
+                        final boolean isLocal = code[ip++] == 1;
+                        final int index = code[ip++] & 0xFF;
+                        closure.upvalues[i] = isLocal ? captureUpvalue(base + index) : frame.closure.upvalues[index];
+                    }
+                    push(closure);
+                }
+                case OpCode.CLOSE_UPVALUE -> {
+                    closeUpvalues(sp - 1);
+                    stack[--sp] = null;
+                }
+                case OpCode.RETURN -> {
+                    final Object result = pop();
+                    closeUpvalues(base);
+                    frameCount--;
+
+                    Arrays.fill(stack, base, sp, null);
+                    sp = base;
+                    if (frameCount == 0) return;
+                    push(result);
+
+                    frame = frames[frameCount - 1];
+                    code = frame.closure.function.code;
+                    constants = frame.closure.function.constants;
+                    base = frame.base;
+                    ip = frame.ip;
+                }
+
+                case OpCode.CLASS -> {
+                    push(new ObjClass((String) constants[readShort(code, ip)]));
+                    ip += 2;
+                }
+                case OpCode.INHERIT -> {
+                    if (!(stack[sp - 2] instanceof ObjClass superclass)) {
+                        throw new RuntimeError("Superclass must be a class.");
+                    }
+                    // Copy-down inheritance: methods declared next in the subclass overwrite these
+                    final ObjClass subclass = (ObjClass) pop();
+                    subclass.methods.putAll(superclass.methods);
+                    subclass.initializer = superclass.initializer;
+                }
+                case OpCode.METHOD -> {
+                    final String name = (String) constants[readShort(code, ip)];
+                    ip += 2;
+                    final ObjClosure method = (ObjClosure) pop();
+                    final ObjClass klass = (ObjClass) stack[sp - 1];
+                    klass.methods.put(name, method);
+                    if (name.equals("init")) klass.initializer = method;
+                }
+
+                default -> throw new IllegalStateException("Unknown opcode " + code[ip - 1]);
+            }
+        }
+    }
+
+    private Object getProperty(final ObjInstance instance, final String name) {
+        final Object field = instance.fields.get(name);
+        if (field != null || instance.fields.containsKey(name)) return field;
+
+        final ObjClosure method = instance.klass.methods.get(name);
+        if (method == null) {
+            throw new RuntimeError("Undefined property '%s'.".formatted(name));
+        }
+        return new ObjBoundMethod(instance, method);
+    }
+
+    private void invoke(final String name, final int argCount) {
+        final Object receiver = stack[sp - argCount - 1];
+        if (!(receiver instanceof ObjInstance instance)) {
+            callValue(null, argCount);
+            return;
+        }
+
+        // A field holding a function shadows a method of the same name
+        final Object field = instance.fields.get(name);
+        if (field != null || instance.fields.containsKey(name)) {
+            stack[sp - argCount - 1] = field;
+            callValue(field, argCount);
+            return;
+        }
+
+        final ObjClosure method = instance.klass.methods.get(name);
+        if (method == null) {
+            throw new RuntimeError("Undefined property '%s'.".formatted(name));
+        }
+        call(method, argCount);
+    }
+
+    private void callValue(final Object callee, final int argCount) {
+        switch (callee) {
+            case ObjClosure closure -> call(closure, argCount);
+            case ObjBoundMethod bound -> {
+                stack[sp - argCount - 1] = bound.receiver;
+                call(bound.method, argCount);
+            }
+            case ObjClass klass -> {
+                stack[sp - argCount - 1] = new ObjInstance(klass);
+                if (klass.initializer != null) {
+                    call(klass.initializer, argCount);
+                } else if (argCount != 0) {
+                    throw new RuntimeError("Expected 0 arguments but got %d.".formatted(argCount));
+                }
+            }
+            case LoxCallable callable -> {
+                if (argCount != callable.arity()) {
+                    throw new RuntimeError("Expected %d arguments but got %d.".formatted(callable.arity(), argCount));
+                }
+                final List<Object> arguments = Arrays.asList(Arrays.copyOfRange(stack, sp - argCount, sp));
+                final Object result = callable.call(null, arguments);
+                Arrays.fill(stack, sp - argCount - 1, sp, null);
+                sp -= argCount + 1;
+                push(result);
+            }
+            case null, default -> throw new RuntimeError("Can only call functions and classes");
+        }
+    }
+
+    private void call(final ObjClosure closure, final int argCount) {
+        final int arity = closure.function.arity;
+        if (argCount != arity) {
+            throw new RuntimeError("Expected %d arguments but got %d.".formatted(arity, argCount));
+        }
+
+        if (frameCount == frames.length) {
+            if (frameCount == FRAMES_MAX) throw new RuntimeError("Stack overflow.");
+            frames = Arrays.copyOf(frames, frameCount * 2);
+        }
+
+        CallFrame frame = frames[frameCount];
+        if (frame == null) {
+            frame = new CallFrame();
+            frames[frameCount] = frame;
+        }
+        frameCount++;
+
+        frame.closure = closure;
+        frame.ip = 0;
+        frame.base = sp - argCount - 1;
+    }
+
+    private ObjUpvalue captureUpvalue(final int slot) {
+        ObjUpvalue previous = null;
+        ObjUpvalue upvalue = openUpvalues;
+        while (upvalue != null && upvalue.slot > slot) {
+            previous = upvalue;
+            upvalue = upvalue.next;
+        }
+
+        if (upvalue != null && upvalue.slot == slot) return upvalue;
+
+        final ObjUpvalue created = new ObjUpvalue(slot, upvalue);
+        if (previous == null) {
+            openUpvalues = created;
+        } else {
+            previous.next = created;
+        }
+        return created;
+    }
+
+    private void closeUpvalues(final int last) {
+        while (openUpvalues != null && openUpvalues.slot >= last) {
+            final ObjUpvalue upvalue = openUpvalues;
+            upvalue.closed = stack[upvalue.slot];
+            upvalue.isOpen = false;
+            openUpvalues = upvalue.next;
+        }
+    }
+
+    private static Object incremented(final Object value, final int mode) {
+        if (!(value instanceof Double number)) {
+            throw new RuntimeError("Operand must be a number.");
+        }
+        return (mode & OpCode.DECREMENT) != 0 ? number - 1 : number + 1;
+    }
+
+    private void checkNumberOperands() {
+        if (stack[sp - 2] instanceof Double && stack[sp - 1] instanceof Double) return;
+        throw new RuntimeError("Operands must be numbers.");
+    }
+
+    // Same as the closure engine: whole numbers take the exact integer remainder
+    private static double remainder(final double left, final double right) {
+        final long l = (long) left;
+        final long r = (long) right;
+        if (l == left && r == right && r != 0 && Math.abs(l) < MAX_EXACT_INTEGER && Math.abs(r) < MAX_EXACT_INTEGER) {
+            return Math.copySign((double) (l % r), left);
+        }
+        return left % right;
+    }
+
+    private static int readShort(final byte[] code, final int ip) {
+        return ((code[ip] & 0xFF) << 8) | (code[ip + 1] & 0xFF);
+    }
+
+    private static LoxArray array(final Object object) {
+        if (object instanceof LoxArray array) return array;
+        throw new RuntimeError("Only arrays and maps can be indexed.");
+    }
+
+    private void push(final Object value) {
+        if (sp == stack.length) {
+            stack = Arrays.copyOf(stack, sp * 2);
+        }
+        stack[sp++] = value;
+    }
+
+    private Object pop() {
+        final Object value = stack[--sp];
+        stack[sp] = null;
+        return value;
+    }
+}